@@ -1,11 +1,16 @@
 package com.starbucks.menuaichat;
 
+import org.springframework.ai.model.ollama.autoconfigure.OllamaChatAutoConfiguration;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaEmbeddingAutoConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// Ollama models are built per endpoint by OllamaPoolConfiguration
+@SpringBootApplication(exclude = {OllamaChatAutoConfiguration.class, OllamaEmbeddingAutoConfiguration.class})
 @EnableCaching
+@EnableScheduling
 public class StarbucksMenuAiChatApplication {
 
     public static void main(String[] args) {
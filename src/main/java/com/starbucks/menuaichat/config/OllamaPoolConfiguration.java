@@ -0,0 +1,146 @@
+package com.starbucks.menuaichat.config;
+
+import com.starbucks.menuaichat.service.OllamaEndpoint;
+import com.starbucks.menuaichat.service.OllamaEndpointPool;
+import com.starbucks.menuaichat.service.PooledOllamaChatModel;
+import com.starbucks.menuaichat.service.PooledOllamaEmbeddingModel;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaChatProperties;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaEmbeddingProperties;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaInitializationProperties;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.ollama.management.ModelManagementOptions;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Replaces the single auto-configured Ollama client with pools of endpoints, one for chat
+ * and one for embeddings. Both default to {@code spring.ai.ollama.base-url}. The Spring AI
+ * chat/embedding auto-configurations are excluded on the application class, so the
+ * {@code spring.ai.ollama.chat/embedding/init} properties are bound here instead.
+ */
+@Configuration
+@EnableConfigurationProperties({OllamaChatProperties.class, OllamaEmbeddingProperties.class,
+                                OllamaInitializationProperties.class})
+public class OllamaPoolConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaPoolConfiguration.class);
+
+    @Value("${starbucks.ollama.chat-endpoints:${spring.ai.ollama.base-url}}")
+    private List<String> chatEndpoints;
+
+    @Value("${starbucks.ollama.embedding-endpoints:${spring.ai.ollama.base-url}}")
+    private List<String> embeddingEndpoints;
+
+    @Value("${starbucks.ollama.eject-after-failures:3}")
+    private int ejectAfterFailures;
+
+    @Value("${starbucks.ollama.readmit-after-successes:2}")
+    private int readmitAfterSuccesses;
+
+    @Value("${starbucks.ollama.health-check-timeout:2s}")
+    private Duration healthCheckTimeout;
+
+    @Bean
+    public OllamaEndpointPool<OllamaChatModel> chatEndpointPool(OllamaChatProperties chatProperties,
+                                                                OllamaInitializationProperties initProperties,
+                                                                ToolCallingManager toolCallingManager,
+                                                                ObjectProvider<ObservationRegistry> observationRegistry,
+                                                                ObjectProvider<RestClient.Builder> restClientBuilder,
+                                                                ObjectProvider<WebClient.Builder> webClientBuilder) {
+        return buildPool("chat", chatEndpoints, baseUrl -> OllamaChatModel.builder()
+            .ollamaApi(modelApi(baseUrl, restClientBuilder, webClientBuilder))
+            .defaultOptions(OllamaOptions.fromOptions(chatProperties.getOptions()))
+            .toolCallingManager(toolCallingManager)
+            .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+            .modelManagementOptions(modelManagement(initProperties, initProperties.getChat()))
+            .build());
+    }
+
+    @Bean
+    public OllamaEndpointPool<OllamaEmbeddingModel> embeddingEndpointPool(OllamaEmbeddingProperties embeddingProperties,
+                                                                          OllamaInitializationProperties initProperties,
+                                                                          ObjectProvider<ObservationRegistry> observationRegistry,
+                                                                          ObjectProvider<RestClient.Builder> restClientBuilder,
+                                                                          ObjectProvider<WebClient.Builder> webClientBuilder) {
+        return buildPool("embedding", embeddingEndpoints, baseUrl -> OllamaEmbeddingModel.builder()
+            .ollamaApi(modelApi(baseUrl, restClientBuilder, webClientBuilder))
+            .defaultOptions(OllamaOptions.fromOptions(embeddingProperties.getOptions()))
+            .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+            .modelManagementOptions(modelManagement(initProperties, initProperties.getEmbedding()))
+            .build());
+    }
+
+    @Bean
+    @Primary
+    public PooledOllamaChatModel pooledChatModel(OllamaEndpointPool<OllamaChatModel> chatEndpointPool,
+                                                 OllamaChatProperties chatProperties) {
+        return new PooledOllamaChatModel(chatEndpointPool, OllamaOptions.fromOptions(chatProperties.getOptions()));
+    }
+
+    @Bean
+    @Primary
+    public PooledOllamaEmbeddingModel pooledEmbeddingModel(OllamaEndpointPool<OllamaEmbeddingModel> embeddingEndpointPool) {
+        return new PooledOllamaEmbeddingModel(embeddingEndpointPool);
+    }
+
+    private <M> OllamaEndpointPool<M> buildPool(String name, List<String> baseUrls, Function<String, M> modelFactory) {
+        List<OllamaEndpoint<M>> endpoints = baseUrls.stream()
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .distinct()
+            .map(url -> new OllamaEndpoint<>(url, modelFactory.apply(url), healthCheckApi(url)))
+            .toList();
+        logger.info("🌐 Ollama {} pool with {} endpoint(s): {}", name, endpoints.size(),
+            endpoints.stream().map(OllamaEndpoint::getBaseUrl).toList());
+        return new OllamaEndpointPool<>(name, endpoints, ejectAfterFailures, readmitAfterSuccesses);
+    }
+
+    /**
+     * Same pull settings the auto-configured models use; each pooled endpoint pulls its
+     * models independently when it is built.
+     */
+    private ModelManagementOptions modelManagement(OllamaInitializationProperties initProperties,
+                                                   OllamaInitializationProperties.ModelTypeInit modelType) {
+        PullModelStrategy strategy = modelType.isInclude() ? initProperties.getPullModelStrategy() : PullModelStrategy.NEVER;
+        return new ModelManagementOptions(strategy, modelType.getAdditionalModels(),
+            initProperties.getTimeout(), initProperties.getMaxRetries());
+    }
+
+    private OllamaApi modelApi(String baseUrl, ObjectProvider<RestClient.Builder> restClientBuilder,
+                               ObjectProvider<WebClient.Builder> webClientBuilder) {
+        return OllamaApi.builder()
+            .baseUrl(baseUrl)
+            .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+            .webClientBuilder(webClientBuilder.getIfAvailable(WebClient::builder))
+            .build();
+    }
+
+    private OllamaApi healthCheckApi(String baseUrl) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) healthCheckTimeout.toMillis());
+        requestFactory.setReadTimeout((int) healthCheckTimeout.toMillis());
+        return OllamaApi.builder()
+            .baseUrl(baseUrl)
+            .restClientBuilder(RestClient.builder().requestFactory(requestFactory))
+            .build();
+    }
+}
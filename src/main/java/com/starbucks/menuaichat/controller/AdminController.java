@@ -0,0 +1,79 @@
+package com.starbucks.menuaichat.controller;
+
+import com.starbucks.menuaichat.service.ChatMessagePartitionManager;
+import com.starbucks.menuaichat.service.ChatRetentionService;
+import com.starbucks.menuaichat.service.OllamaEndpointPool;
+import com.starbucks.menuaichat.service.QuantizedVectorIndex;
+import com.starbucks.menuaichat.service.SlowRequestRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    
+    private static final int MAX_BENCHMARK_QUERIES = 1000;
+    private static final int MAX_BENCHMARK_K = 100;
+    
+    @Autowired
+    private List<OllamaEndpointPool<?>> ollamaPools;
+    
+    @Autowired
+    private ChatRetentionService chatRetentionService;
+    
+    @Autowired
+    private ChatMessagePartitionManager chatMessagePartitionManager;
+    
+    @Autowired
+    private QuantizedVectorIndex quantizedVectorIndex;
+    
+    @Autowired
+    private SlowRequestRecorder slowRequestRecorder;
+    
+    @GetMapping("/ollama/endpoints")
+    public ResponseEntity<Map<String, Object>> getOllamaEndpoints() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (OllamaEndpointPool<?> pool : ollamaPools) {
+            pools.put(pool.getName(), pool.getEndpointStats());
+        }
+        return ResponseEntity.ok(pools);
+    }
+    
+    @GetMapping("/retention")
+    public ResponseEntity<Map<String, Object>> getRetentionStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", chatRetentionService.getStats());
+        stats.put("messages", chatMessagePartitionManager.getStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    @GetMapping("/vector-index")
+    public ResponseEntity<Map<String, Object>> getVectorIndexStats() {
+        return ResponseEntity.ok(quantizedVectorIndex.getStats());
+    }
+    
+    @PostMapping("/vector-index/benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkVectorIndex(@RequestParam(defaultValue = "100") int queries,
+                                                                    @RequestParam(defaultValue = "8") int k) {
+        if (queries < 1 || queries > MAX_BENCHMARK_QUERIES || k < 1 || k > MAX_BENCHMARK_K) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "queries must be between 1 and " + MAX_BENCHMARK_QUERIES
+                    + " and k between 1 and " + MAX_BENCHMARK_K
+            ));
+        }
+        return ResponseEntity.ok(quantizedVectorIndex.benchmark(queries, k));
+    }
+    
+    @GetMapping("/slow-requests")
+    public ResponseEntity<Map<String, Object>> getSlowRequests() {
+        return ResponseEntity.ok(Map.of(
+            "window", slowRequestRecorder.getWindow().toString(),
+            "requests", slowRequestRecorder.getSlowest()
+        ));
+    }
+}
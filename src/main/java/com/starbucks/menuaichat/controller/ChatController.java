@@ -1,9 +1,13 @@
 package com.starbucks.menuaichat.controller;
 
+import com.starbucks.menuaichat.service.LlmCapacityExceededException;
+import com.starbucks.menuaichat.service.RetrievalPrefetchService;
 import com.starbucks.menuaichat.service.StarbucksAiChatService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,6 +23,9 @@ public class ChatController {
     @Autowired
     private StarbucksAiChatService chatService;
     
+    @Autowired
+    private RetrievalPrefetchService retrievalPrefetchService;
+    
     @PostMapping("/start")
     public ResponseEntity<Map<String, String>> startNewSession() {
         logger.info("🚀 Starting new chat session");
@@ -42,6 +49,13 @@ public class ChatController {
                 "sessionId", request.getSessionId(),
                 "response", response
             ));
+        } catch (LlmCapacityExceededException e) {
+            logger.warn("⏳ Over capacity for session: {} - {}", request.getSessionId(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of(
+                    "error", "The assistant is busy right now, please try again shortly."
+                ));
         } catch (Exception e) {
             logger.error("❌ Error processing message for session: {} - Error: {}", 
                 request.getSessionId(), e.getMessage(), e);
@@ -51,6 +65,16 @@ public class ChatController {
         }
     }
     
+    /**
+     * Called by the UI (debounced) while the user types, so retrieval for the message can run
+     * before it is submitted. Always accepted; the work is best-effort.
+     */
+    @PostMapping("/prefetch")
+    public ResponseEntity<Void> prefetch(@RequestBody ChatRequest request) {
+        retrievalPrefetchService.prefetch(request.getSessionId(), request.getMessage());
+        return ResponseEntity.accepted().build();
+    }
+    
     public static class ChatRequest {
         private String sessionId;
         private String message;
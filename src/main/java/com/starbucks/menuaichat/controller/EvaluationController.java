@@ -0,0 +1,43 @@
+package com.starbucks.menuaichat.controller;
+
+import com.starbucks.menuaichat.service.BatchEvaluationService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/eval")
+public class EvaluationController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationController.class);
+    
+    @Autowired
+    private BatchEvaluationService batchEvaluationService;
+    
+    /**
+     * Streams one JSONL result per question, then a summary line. Written straight to the
+     * servlet response rather than as an async body so long runs are not cut off by the
+     * async request timeout.
+     */
+    @PostMapping(value = "/batch", consumes = {"text/plain", "application/x-ndjson", "application/jsonl"})
+    public void runBatch(@RequestBody String questionsFile,
+                         @RequestParam(defaultValue = "4") int parallelism,
+                         HttpServletResponse response) throws IOException {
+        List<String> questions = batchEvaluationService.parseQuestions(questionsFile);
+        logger.info("🧪 Received batch evaluation request with {} questions", questions.size());
+        
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        batchEvaluationService.run(questions, parallelism, writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,111 @@
+package com.starbucks.menuaichat.controller;
+
+import com.starbucks.menuaichat.service.MenuCatalogService;
+import com.starbucks.menuaichat.service.MenuCatalogService.SerializedBody;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/menu")
+@CrossOrigin(origins = "*")
+public class MenuController {
+    
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+    
+    @Autowired
+    private MenuCatalogService menuCatalogService;
+    
+    @GetMapping("/drinks")
+    public ResponseEntity<byte[]> listDrinks(@RequestParam(required = false) Integer minCalories,
+                                             @RequestParam(required = false) Integer maxCalories,
+                                             @RequestParam(required = false) Integer minCaffeine,
+                                             @RequestParam(required = false) Integer maxCaffeine,
+                                             @RequestHeader HttpHeaders headers) {
+        boolean filtered = minCalories != null || maxCalories != null || minCaffeine != null || maxCaffeine != null;
+        SerializedBody body = filtered
+            ? menuCatalogService.filterDrinks(minCalories, maxCalories, minCaffeine, maxCaffeine)
+            : menuCatalogService.allDrinks();
+        return respond(body, headers);
+    }
+    
+    @GetMapping("/drinks/{id}")
+    public ResponseEntity<byte[]> getDrink(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
+        return menuCatalogService.drink(id)
+            .map(body -> respond(body, headers))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/categories")
+    public ResponseEntity<byte[]> listCategories(@RequestHeader HttpHeaders headers) {
+        return respond(menuCatalogService.categories(), headers);
+    }
+    
+    @GetMapping("/categories/{category}/drinks")
+    public ResponseEntity<byte[]> listDrinksInCategory(@PathVariable String category, @RequestHeader HttpHeaders headers) {
+        return menuCatalogService.drinksInCategory(category)
+            .map(body -> respond(body, headers))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    private ResponseEntity<byte[]> respond(SerializedBody body, HttpHeaders requestHeaders) {
+        boolean gzip = acceptsGzip(requestHeaders);
+        String etag = gzip ? body.gzipEtag() : body.etag();
+        
+        if (matchesIfNoneMatch(requestHeaders, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag)
+            .cacheControl(CACHE_CONTROL)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return response.contentLength(body.gzip().length).body(body.gzip());
+        }
+        return response.contentLength(body.json().length).body(body.json());
+    }
+    
+    private boolean acceptsGzip(HttpHeaders headers) {
+        for (String value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                    return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+    
+    // If-None-Match uses weak comparison, so a W/ prefix on the client's tag is ignored
+    private boolean matchesIfNoneMatch(HttpHeaders headers, String etag) {
+        for (String value : headers.getOrEmpty(HttpHeaders.IF_NONE_MATCH)) {
+            for (String candidate : value.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*")) {
+                    return true;
+                }
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
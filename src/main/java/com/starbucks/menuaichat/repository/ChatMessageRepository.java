@@ -13,4 +13,7 @@ public interface ChatMessageRepository extends CrudRepository<ChatMessage, Long>
     
     @Query("SELECT * FROM chat_messages WHERE session_id = :sessionId ORDER BY timestamp ASC")
     List<ChatMessage> findBySessionIdOrderByTimestamp(@Param("sessionId") Long sessionId);
-}
\ No newline at end of file
+    
+    @Query("SELECT * FROM chat_messages WHERE session_id IN (:sessionIds) ORDER BY session_id, timestamp ASC")
+    List<ChatMessage> findBySessionIdIn(@Param("sessionIds") List<Long> sessionIds);
+}
@@ -1,11 +1,14 @@
 package com.starbucks.menuaichat.repository;
 
 import com.starbucks.menuaichat.model.ChatSession;
+import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +16,17 @@ public interface ChatSessionRepository extends CrudRepository<ChatSession, Long>
     
     @Query("SELECT * FROM chat_sessions WHERE session_id = :sessionId")
     Optional<ChatSession> findBySessionId(@Param("sessionId") String sessionId);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE chat_sessions SET updated_at = :now WHERE id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    // Oldest idle sessions first, bounded so a purge run works in small transactions
+    @Query("SELECT * FROM chat_sessions WHERE updated_at < :cutoff ORDER BY updated_at LIMIT :limit")
+    List<ChatSession> findIdleSessions(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    // Re-checks idleness so a session touched since it was selected is not deleted
+    @Modifying
+    @Query("DELETE FROM chat_sessions WHERE id IN (:ids) AND updated_at < :cutoff")
+    int deleteIdleByIdIn(@Param("ids") List<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -15,6 +15,11 @@ public interface DrinkItemRepository extends CrudRepository<DrinkItem, Long> {
     @Query("SELECT * FROM drink_items WHERE id IN (:ids)")
     List<DrinkItem> findByIdIn(@Param("ids") List<Long> ids);
     
+    // Load every size/milk variant of the given beverages, in menu order. Names repeat across
+    // categories, so callers keep only the (category, beverage) pairs they asked for
+    @Query("SELECT * FROM drink_items WHERE beverage IN (:beverages) ORDER BY id")
+    List<DrinkItem> findByBeverageIn(@Param("beverages") List<String> beverages);
+    
     // Keep one simple query for basic category filtering if needed
     @Query("SELECT * FROM drink_items WHERE LOWER(beverage_category) = LOWER(:category)")
     List<DrinkItem> findByBeverageCategory(@Param("category") String category);
@@ -0,0 +1,262 @@
+package com.starbucks.menuaichat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays recorded questions through the chat pipeline for regression testing. Questions are
+ * embedded in batches on the calling thread while a worker pool runs retrieval and generation
+ * for earlier batches. Nothing is persisted. One JSONL line is written per question as it
+ * completes, followed by a summary line with throughput and per-stage latency percentiles.
+ */
+@Service
+public class BatchEvaluationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchEvaluationService.class);
+    
+    @Autowired
+    private StarbucksAiChatService chatService;
+    
+    @Autowired
+    private SpringAiVectorService springAiVectorService;
+    
+    @Autowired
+    private LlmConcurrencyLimiter llmConcurrencyLimiter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${starbucks.evaluation.max-parallelism:8}")
+    private int maxParallelism;
+    
+    @Value("${starbucks.evaluation.embedding-batch-size:32}")
+    private int embeddingBatchSize;
+    
+    /**
+     * Accepts one question per line, either as plain text or as a JSON object with a
+     * {@code question} (or {@code message}) field. Blank lines are skipped.
+     */
+    public List<String> parseQuestions(String body) {
+        List<String> questions = new ArrayList<>();
+        for (String line : body.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.startsWith("{")) {
+                try {
+                    JsonNode node = objectMapper.readTree(trimmed);
+                    JsonNode question = node.has("question") ? node.get("question") : node.get("message");
+                    if (question != null && !question.asText().isBlank()) {
+                        questions.add(question.asText());
+                    }
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // Not JSON after all, treat the line as the question itself
+                }
+            }
+            questions.add(trimmed);
+        }
+        return questions;
+    }
+    
+    /**
+     * Runs the questions and streams results to {@code out}. Parallelism is capped by the
+     * evaluation bulkhead, since more workers would only queue for it; the summary reports
+     * both the requested and the effective value. The first failed write (the client went
+     * away) stops the run: nothing further is submitted, queued questions are dropped and
+     * the write error is rethrown once the workers are stopped.
+     */
+    public void run(List<String> questions, int requestedParallelism, Writer out) throws IOException {
+        int parallelism = Math.max(1, Math.min(requestedParallelism,
+            Math.min(maxParallelism, llmConcurrencyLimiter.getEvaluationBulkhead().getLimit())));
+        logger.info("🧪 Starting batch evaluation of {} questions with parallelism {} (requested {})",
+            questions.size(), parallelism, requestedParallelism);
+        
+        Map<String, List<Long>> stageSamples = new ConcurrentHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        int embeddingBatches = 0;
+        // Bound the embedded-but-unanswered backlog so embeddings don't race far ahead of generation
+        Semaphore backlog = new Semaphore(parallelism * 2 + embeddingBatchSize);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        long start = System.nanoTime();
+        
+        try {
+            submission:
+            for (int from = 0; from < questions.size(); from += embeddingBatchSize) {
+                List<String> batch = questions.subList(from, Math.min(from + embeddingBatchSize, questions.size()));
+                while (!backlog.tryAcquire(batch.size(), 100, TimeUnit.MILLISECONDS)) {
+                    if (writeFailure.get() != null) {
+                        break submission;
+                    }
+                }
+                if (writeFailure.get() != null) {
+                    break;
+                }
+                
+                List<float[]> embeddings = null;
+                long embeddingNanos = 0;
+                try {
+                    long embedStart = System.nanoTime();
+                    embeddings = springAiVectorService.embedAll(batch);
+                    embeddingNanos = (System.nanoTime() - embedStart) / batch.size();
+                    embeddingBatches++;
+                } catch (RuntimeException e) {
+                    logger.warn("Batch embedding failed, questions {}-{} will embed individually: {}",
+                        from, from + batch.size() - 1, e.getMessage());
+                }
+                
+                for (int i = 0; i < batch.size(); i++) {
+                    int index = from + i;
+                    String question = batch.get(i);
+                    float[] embedding = embeddings != null ? embeddings.get(i) : null;
+                    long amortizedEmbeddingNanos = embeddingNanos;
+                    try {
+                        workers.execute(() -> {
+                            try {
+                                if (writeFailure.get() != null) {
+                                    return;
+                                }
+                                Map<String, Object> result = evaluateOne(index, question, embedding, amortizedEmbeddingNanos, stageSamples);
+                                (result.containsKey("error") ? failed : succeeded).incrementAndGet();
+                                writeLine(out, result);
+                            } catch (UncheckedIOException e) {
+                                if (writeFailure.compareAndSet(null, e.getCause())) {
+                                    logger.warn("🧪 Evaluation output failed, stopping the run: {}", e.getCause().getMessage());
+                                    workers.shutdownNow();
+                                }
+                            } finally {
+                                backlog.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Workers were shut down after a write failure
+                        break submission;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            workers.shutdown();
+        }
+        
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        if (writeFailure.get() != null) {
+            logger.warn("🧪 Batch evaluation aborted after {} of {} questions", succeeded.get() + failed.get(), questions.size());
+            throw writeFailure.get();
+        }
+        
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("questions", questions.size());
+        summary.put("succeeded", succeeded.get());
+        summary.put("failed", failed.get());
+        summary.put("requestedParallelism", requestedParallelism);
+        summary.put("parallelism", parallelism);
+        summary.put("embeddingBatches", embeddingBatches);
+        summary.put("wallClockMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        summary.put("questionsPerSecond", questions.size() / (elapsedNanos / 1e9));
+        summary.put("stages", summarizeStages(stageSamples));
+        writeLine(out, Map.of("summary", summary));
+        
+        logger.info("🧪 Batch evaluation finished: {} ok, {} failed in {} ms",
+            succeeded.get(), failed.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+    
+    private Map<String, Object> evaluateOne(int index, String question, float[] embedding, long embeddingNanos,
+                                            Map<String, List<Long>> stageSamples) {
+        ChatTrace trace = new ChatTrace();
+        if (embedding != null) {
+            trace.record(ChatTrace.EMBEDDING, embeddingNanos);
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("question", question);
+        long start = System.nanoTime();
+        try {
+            result.put("response", chatService.evaluate(question, embedding, trace));
+        } catch (RuntimeException e) {
+            result.put("error", e.getMessage());
+        }
+        result.put("totalMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        result.put("stagesMs", trace.getStageMillis());
+        
+        trace.getStageNanos().forEach((stage, nanos) ->
+            stageSamples.computeIfAbsent(stage, k -> Collections.synchronizedList(new ArrayList<>())).add(nanos));
+        return result;
+    }
+    
+    private Map<String, Object> summarizeStages(Map<String, List<Long>> stageSamples) {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (String stage : List.of(ChatTrace.EMBEDDING, ChatTrace.RETRIEVAL, ChatTrace.HYDRATION,
+                                           ChatTrace.PROMPT, ChatTrace.QUEUE, ChatTrace.LLM)) {
+            List<Long> samples = stageSamples.get(stage);
+            if (samples == null || samples.isEmpty()) {
+                continue;
+            }
+            List<Long> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", sorted.size());
+            stats.put("meanMs", sorted.stream().mapToLong(Long::longValue).average().orElse(0) / 1e6);
+            stats.put("p50Ms", percentile(sorted, 0.50) / 1e6);
+            stats.put("p95Ms", percentile(sorted, 0.95) / 1e6);
+            stats.put("p99Ms", percentile(sorted, 0.99) / 1e6);
+            stats.put("maxMs", sorted.get(sorted.size() - 1) / 1e6);
+            stages.put(stage, stats);
+        }
+        return stages;
+    }
+    
+    private static long percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+    
+    private void writeLine(Writer out, Object value) {
+        try {
+            String line = objectMapper.writeValueAsString(value);
+            synchronized (out) {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.starbucks.menuaichat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps daily partitions of {@code chat_messages} created ahead of time and drops whole
+ * partitions once they fall past the message retention horizon, which is far cheaper than
+ * deleting old rows and leaves the remaining partitions' indexes small. This removes
+ * messages of sessions that are still active, so with archival enabled each partition is
+ * written to a gzipped JSONL file (one message per line) before it is dropped. Rows that
+ * landed in the default partition are moved into their day's partition when it is created,
+ * and pruned (and archived) past retention like the daily partitions.
+ */
+@Service
+public class ChatMessagePartitionManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessagePartitionManager.class);
+    
+    private static final String PARTITION_PREFIX = "chat_messages_p";
+    private static final String DEFAULT_PARTITION = "chat_messages_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Value("${starbucks.retention.partitioning.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${starbucks.retention.partitioning.days-ahead:3}")
+    private int daysAhead;
+    
+    @Value("${starbucks.retention.message-retention:30d}")
+    private Duration messageRetention;
+    
+    @Value("${starbucks.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+    
+    @Value("${starbucks.retention.archive.directory:archive/chat}")
+    private String archiveDirectory;
+    
+    private final AtomicLong tableBytes = new AtomicLong();
+    private final AtomicLong partitionCount = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private final AtomicLong messagesArchived = new AtomicLong();
+    private final AtomicLong stragglersPruned = new AtomicLong();
+    
+    @PostConstruct
+    void registerMetrics() {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("chat.messages.table.size", tableBytes, AtomicLong::get)
+            .description("Total on-disk size of all chat_messages partitions")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("chat.messages.partitions", partitionCount, AtomicLong::get)
+            .description("Number of daily chat_messages partitions")
+            .register(registry);
+        FunctionCounter.builder("chat.retention.partitions.dropped", partitionsDropped, AtomicLong::get)
+            .description("chat_messages partitions dropped past retention")
+            .register(registry);
+        FunctionCounter.builder("chat.retention.messages.archived", messagesArchived, AtomicLong::get)
+            .description("Chat messages written to archive files before purge")
+            .tag("source", "partitions")
+            .register(registry);
+        FunctionCounter.builder("chat.retention.default.pruned", stragglersPruned, AtomicLong::get)
+            .description("Rows deleted from the default chat_messages partition past retention")
+            .register(registry);
+    }
+    
+    @Scheduled(fixedDelayString = "${starbucks.retention.purge-interval:1h}")
+    public void maintainPartitions() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            for (int day = 0; day <= daysAhead; day++) {
+                createPartition(today.plusDays(day));
+            }
+            LocalDate cutoff = today.minusDays(messageRetention.toDays());
+            dropPartitionsBefore(cutoff);
+            pruneDefaultPartition(cutoff);
+            refreshSize();
+        } catch (DataAccessException e) {
+            logger.error("❌ chat_messages partition maintenance failed: {}", e.getMessage(), e);
+        } catch (IOException e) {
+            logger.error("❌ Archiving chat_messages before drop failed, keeping the rows: {}", e.getMessage(), e);
+        }
+    }
+    
+    private void createPartition(LocalDate day) {
+        String name = PARTITION_PREFIX + day.format(PARTITION_SUFFIX);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_class WHERE relname = ?)", Boolean.class, name))) {
+            return;
+        }
+        String bounds = "FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')";
+        Boolean hasStragglers = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?)",
+            Boolean.class, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        if (!Boolean.TRUE.equals(hasStragglers)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF chat_messages " + bounds);
+            logger.debug("Ensured chat_messages partition {}", name);
+            return;
+        }
+        
+        // Attaching over rows still in the default partition fails, so move them across first
+        Integer moved = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE chat_messages INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                    + " WHERE timestamp >= ? AND timestamp < ? RETURNING *) INSERT INTO " + name + " SELECT * FROM moved",
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            jdbcTemplate.execute("ALTER TABLE chat_messages ATTACH PARTITION " + name + " " + bounds);
+            return rows;
+        });
+        logger.info("Created chat_messages partition {} and moved {} rows out of {}", name, moved, DEFAULT_PARTITION);
+    }
+    
+    private void dropPartitionsBefore(LocalDate cutoff) throws IOException {
+        for (String name : listPartitions()) {
+            LocalDate day;
+            try {
+                day = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (day.isBefore(cutoff)) {
+                if (archiveEnabled) {
+                    archive(name, name.substring(PARTITION_PREFIX.length()), "");
+                }
+                jdbcTemplate.execute("ALTER TABLE chat_messages DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                partitionsDropped.incrementAndGet();
+                logger.info("🗑️ Dropped chat_messages partition {} (older than {})", name, cutoff);
+            }
+        }
+    }
+    
+    private void pruneDefaultPartition(LocalDate cutoff) throws IOException {
+        if (archiveEnabled) {
+            archive(DEFAULT_PARTITION, "default", " WHERE m.timestamp < ?", cutoff.atStartOfDay());
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?", cutoff.atStartOfDay());
+        if (deleted > 0) {
+            stragglersPruned.addAndGet(deleted);
+            logger.info("🗑️ Deleted {} rows older than {} from {}", deleted, cutoff, DEFAULT_PARTITION);
+        }
+    }
+    
+    /**
+     * Streams the matching rows of {@code table} to a gzipped JSONL file, one message per line
+     * with its session key. Nothing is kept on disk when no rows match.
+     */
+    private void archive(String table, String label, String condition, Object... args) throws IOException {
+        Path directory = Paths.get(archiveDirectory);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("chat-partition-" + label + "-" + LocalDateTime.now().format(ARCHIVE_TIMESTAMP) + ".jsonl.gz");
+        
+        long[] written = {0};
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)),
+                StandardCharsets.UTF_8)) {
+            RowCallbackHandler writeRow = rs -> {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("sessionId", rs.getString("session_key"));
+                record.put("type", rs.getString("message_type"));
+                record.put("content", rs.getString("content"));
+                record.put("timestamp", String.valueOf(rs.getTimestamp("timestamp").toLocalDateTime()));
+                try {
+                    writer.write(objectMapper.writeValueAsString(record));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            };
+            jdbcTemplate.query("SELECT s.session_id AS session_key, m.message_type, m.content, m.timestamp FROM "
+                + table + " m LEFT JOIN chat_sessions s ON s.id = m.session_id" + condition
+                + " ORDER BY m.session_id, m.timestamp", writeRow, args);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        if (written[0] == 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        messagesArchived.addAndGet(written[0]);
+        logger.info("📦 Archived {} messages from {} to {}", written[0], table, file);
+    }
+    
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = 'chat_messages'::regclass AND c.relname LIKE '" + PARTITION_PREFIX + "%' "
+                + "ORDER BY c.relname",
+            String.class);
+    }
+    
+    private void refreshSize() {
+        Long bytes = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(pg_total_relation_size(inhrelid)), 0) FROM pg_inherits "
+                + "WHERE inhparent = 'chat_messages'::regclass",
+            Long.class);
+        tableBytes.set(bytes != null ? bytes : 0);
+        partitionCount.set(listPartitions().size());
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("partitioningEnabled", enabled);
+        stats.put("partitions", partitionCount.get());
+        stats.put("tableSizeBytes", tableBytes.get());
+        stats.put("partitionsDropped", partitionsDropped.get());
+        stats.put("messagesArchived", messagesArchived.get());
+        stats.put("defaultPartitionRowsPruned", stragglersPruned.get());
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package com.starbucks.menuaichat.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a whole chat turn; its stages are the {@link ChatStageEvent}s with the
+ * same session id inside its time span.
+ */
+@Name("com.starbucks.menuaichat.ChatRequest")
+@Label("Chat Request")
+@Category({"Starbucks Menu AI", "Chat"})
+@Description("One chat turn with its outcome and total duration")
+@StackTrace(false)
+class ChatRequestEvent extends Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Prompt Size")
+    long promptSize;
+
+    @Label("Response Size")
+    long responseSize;
+}
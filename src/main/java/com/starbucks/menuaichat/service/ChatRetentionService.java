@@ -0,0 +1,204 @@
+package com.starbucks.menuaichat.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starbucks.menuaichat.model.ChatMessage;
+import com.starbucks.menuaichat.model.ChatSession;
+import com.starbucks.menuaichat.repository.ChatMessageRepository;
+import com.starbucks.menuaichat.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Purges chat sessions that have been idle longer than the session TTL; their messages go
+ * with them through the {@code ON DELETE CASCADE} foreign key. When archival is enabled each
+ * batch is first written to a gzipped JSONL file, and a batch is only deleted once its
+ * archive file has been written. The delete re-checks idleness, so a session that received a
+ * message after it was selected is kept (and archived again by a later run).
+ */
+@Service
+public class ChatRetentionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChatRetentionService.class);
+    
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    
+    @Autowired
+    private ChatSessionRepository chatSessionRepository;
+    
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Value("${starbucks.retention.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${starbucks.retention.session-ttl:7d}")
+    private Duration sessionTtl;
+    
+    @Value("${starbucks.retention.purge-batch-size:500}")
+    private int batchSize;
+    
+    @Value("${starbucks.retention.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+    
+    @Value("${starbucks.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+    
+    @Value("${starbucks.retention.archive.directory:archive/chat}")
+    private String archiveDirectory;
+    
+    private final AtomicLong sessionCount = new AtomicLong();
+    private final AtomicLong lastPurgeThroughput = new AtomicLong();
+    private final AtomicLong sessionsPurged = new AtomicLong();
+    private final AtomicLong messagesArchived = new AtomicLong();
+    private Timer purgeTimer;
+    
+    @PostConstruct
+    void registerMetrics() {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        FunctionCounter.builder("chat.retention.sessions.purged", sessionsPurged, AtomicLong::get)
+            .description("Idle chat sessions deleted by the TTL purge")
+            .register(registry);
+        FunctionCounter.builder("chat.retention.messages.archived", messagesArchived, AtomicLong::get)
+            .description("Chat messages written to archive files before purge")
+            .tag("source", "sessions")
+            .register(registry);
+        purgeTimer = Timer.builder("chat.retention.purge.duration")
+            .description("Duration of each TTL purge run")
+            .register(registry);
+        Gauge.builder("chat.retention.purge.throughput", lastPurgeThroughput, AtomicLong::get)
+            .description("Sessions purged per second in the last purge run")
+            .register(registry);
+        Gauge.builder("chat.sessions.count", sessionCount, AtomicLong::get)
+            .description("Rows in chat_sessions after the last purge run")
+            .register(registry);
+    }
+    
+    @Scheduled(fixedDelayString = "${starbucks.retention.purge-interval:1h}",
+               initialDelayString = "${starbucks.retention.purge-interval:1h}")
+    public void purgeIdleSessions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        long start = System.nanoTime();
+        int purged = 0;
+        
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<ChatSession> idleSessions = chatSessionRepository.findIdleSessions(cutoff, batchSize);
+                if (idleSessions.isEmpty()) {
+                    break;
+                }
+                if (archiveEnabled) {
+                    archive(idleSessions);
+                }
+                purged += chatSessionRepository.deleteIdleByIdIn(
+                    idleSessions.stream().map(ChatSession::getId).toList(), cutoff);
+                if (idleSessions.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("❌ Archiving idle chat sessions failed, stopping purge run: {}", e.getMessage(), e);
+        } finally {
+            long elapsedNanos = System.nanoTime() - start;
+            purgeTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            sessionsPurged.addAndGet(purged);
+            lastPurgeThroughput.set(elapsedNanos > 0 ? purged * 1_000_000_000L / elapsedNanos : 0);
+            sessionCount.set(chatSessionRepository.count());
+        }
+        
+        if (purged > 0) {
+            logger.info("🧹 Purged {} chat sessions idle since before {} in {} ms",
+                purged, cutoff, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+    
+    private void archive(List<ChatSession> sessions) throws IOException {
+        List<Long> ids = sessions.stream().map(ChatSession::getId).toList();
+        Map<Long, List<ChatMessage>> messagesBySession = chatMessageRepository.findBySessionIdIn(ids).stream()
+            .collect(Collectors.groupingBy(ChatMessage::getSessionId));
+        
+        Path directory = Paths.get(archiveDirectory);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("chat-archive-" + LocalDateTime.now().format(ARCHIVE_TIMESTAMP)
+            + "-" + ids.get(0) + ".jsonl.gz");
+        
+        int messageCount = 0;
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)),
+                StandardCharsets.UTF_8)) {
+            for (ChatSession session : sessions) {
+                List<Map<String, Object>> messages = new ArrayList<>();
+                for (ChatMessage message : messagesBySession.getOrDefault(session.getId(), List.of())) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("type", message.getMessageType());
+                    entry.put("content", message.getContent());
+                    entry.put("timestamp", String.valueOf(message.getTimestamp()));
+                    messages.add(entry);
+                }
+                messageCount += messages.size();
+                
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("sessionId", session.getSessionId());
+                record.put("createdAt", String.valueOf(session.getCreatedAt()));
+                record.put("updatedAt", String.valueOf(session.getUpdatedAt()));
+                record.put("messages", messages);
+                writer.write(objectMapper.writeValueAsString(record));
+                writer.write('\n');
+            }
+        }
+        
+        messagesArchived.addAndGet(messageCount);
+        logger.info("📦 Archived {} sessions ({} messages) to {}", sessions.size(), messageCount, file);
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sessionTtl", sessionTtl.toString());
+        stats.put("archiveEnabled", archiveEnabled);
+        stats.put("sessions", sessionCount.get());
+        stats.put("sessionsPurged", sessionsPurged.get());
+        stats.put("messagesArchived", messagesArchived.get());
+        stats.put("lastPurgeSessionsPerSecond", lastPurgeThroughput.get());
+        return stats;
+    }
+}
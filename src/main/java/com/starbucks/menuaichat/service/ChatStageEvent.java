@@ -0,0 +1,32 @@
+package com.starbucks.menuaichat.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one stage of a chat turn (retrieval, hydration, prompt build, bulkhead queue, LLM call).
+ * Sizes are characters for text, rows or documents for lists, and -1 when not applicable.
+ */
+@Name("com.starbucks.menuaichat.ChatStage")
+@Label("Chat Stage")
+@Category({"Starbucks Menu AI", "Chat"})
+@Description("Duration and payload sizes of one chat pipeline stage")
+@StackTrace(false)
+class ChatStageEvent extends Event {
+
+    @Label("Session Id")
+    String sessionId;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Input Size")
+    long inputSize;
+
+    @Label("Output Size")
+    long outputSize;
+}
@@ -0,0 +1,155 @@
+package com.starbucks.menuaichat.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Wall-clock time and payload sizes for each stage of one chat turn. Every stage is also
+ * emitted as a {@link ChatStageEvent} for Java Flight Recorder. While attached to the current
+ * thread, code deeper in the pipeline (e.g. {@link MenuService}) can add stages through
+ * {@link #traceCurrent} without the trace being passed down explicitly.
+ */
+public class ChatTrace {
+
+    public static final String EMBEDDING = "embedding";
+    public static final String PREFETCH = "prefetch";
+    public static final String RETRIEVAL = "retrieval";
+    public static final String HYDRATION = "hydration";
+    public static final String PROMPT = "prompt";
+    public static final String QUEUE = "queue";
+    public static final String LLM = "llm";
+
+    private static final ThreadLocal<ChatTrace> CURRENT = new ThreadLocal<>();
+
+    private final String sessionId;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final List<StageSample> samples = new ArrayList<>();
+    private final ChatRequestEvent requestEvent = new ChatRequestEvent();
+    private long totalNanos = -1;
+
+    public ChatTrace() {
+        this(null);
+    }
+
+    public ChatTrace(String sessionId) {
+        this.sessionId = sessionId;
+        requestEvent.begin();
+    }
+
+    /**
+     * Starts a trace for a live chat turn and attaches it to the current thread.
+     */
+    public static ChatTrace start(String sessionId) {
+        ChatTrace trace = new ChatTrace(sessionId);
+        trace.attach();
+        return trace;
+    }
+
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    public void detach() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Detaches the trace, fixes its total duration and emits a {@link ChatRequestEvent}.
+     */
+    public void finish(String outcome, long promptSize, long responseSize) {
+        detach();
+        totalNanos = System.nanoTime() - startNanos;
+        requestEvent.end();
+        if (requestEvent.shouldCommit()) {
+            requestEvent.sessionId = sessionId;
+            requestEvent.outcome = outcome;
+            requestEvent.promptSize = promptSize;
+            requestEvent.responseSize = responseSize;
+            requestEvent.commit();
+        }
+    }
+
+    /**
+     * Runs a stage in the trace attached to this thread, or just runs it if there is none.
+     */
+    public static <T> T traceCurrent(String name, long inputSize, Supplier<T> work, ToLongFunction<T> outputSize) {
+        ChatTrace current = CURRENT.get();
+        return current != null ? current.stage(name, inputSize, work, outputSize) : work.get();
+    }
+
+    public <T> T stage(String name, Supplier<T> work) {
+        return stage(name, -1, work, null);
+    }
+
+    public <T> T stage(String name, long inputSize, Supplier<T> work, ToLongFunction<T> outputSize) {
+        ChatStageEvent event = new ChatStageEvent();
+        event.begin();
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = work.get();
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            event.end();
+            long output = result != null && outputSize != null ? outputSize.applyAsLong(result) : -1;
+            record(name, nanos, inputSize, output);
+            if (event.shouldCommit()) {
+                event.sessionId = sessionId;
+                event.stage = name;
+                event.inputSize = inputSize;
+                event.outputSize = output;
+                event.commit();
+            }
+        }
+    }
+
+    public void record(String name, long nanos) {
+        record(name, nanos, -1, -1);
+    }
+
+    private void record(String name, long nanos, long inputSize, long outputSize) {
+        stageNanos.merge(name, nanos, Long::sum);
+        samples.add(new StageSample(name, nanos, inputSize, outputSize));
+    }
+
+    public String getSessionId() { return sessionId; }
+
+    public Instant getStartedAt() { return startedAt; }
+
+    /**
+     * Total duration once {@link #finish} has been called, otherwise the time elapsed so far.
+     */
+    public long getTotalNanos() {
+        return totalNanos >= 0 ? totalNanos : System.nanoTime() - startNanos;
+    }
+
+    public Map<String, Long> getStageNanos() {
+        return stageNanos;
+    }
+
+    public List<StageSample> getSamples() {
+        return samples;
+    }
+
+    public Map<String, Double> getStageMillis() {
+        Map<String, Double> millis = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> millis.put(stage, nanos / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        return millis;
+    }
+
+    /**
+     * One execution of a stage; sizes are -1 when not applicable.
+     */
+    public record StageSample(String stage, long nanos, long inputSize, long outputSize) {}
+}
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -27,6 +28,9 @@ public class DataLoaderService implements CommandLineRunner {
     @Autowired
     private SpringAiVectorService springAiVectorService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Override
     public void run(String... args) throws Exception {
         loadDrinkData();
@@ -56,6 +60,7 @@ public class DataLoaderService implements CommandLineRunner {
                 }
                 
                 logger.info("Loaded {} drink items from CSV with embeddings", records.size() - 1);
+                eventPublisher.publishEvent(new MenuChangedEvent(records.size() - 1));
             }
         } catch (IOException | CsvException e) {
             logger.error("Error loading drink data from CSV", e);
@@ -0,0 +1,218 @@
+package com.starbucks.menuaichat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limiter for one class of model calls (chat generation or embeddings).
+ * Callers beyond the limit wait in a bounded FIFO queue; a caller is shed immediately
+ * when the queue is full or when the expected wait would overrun its deadline.
+ * When adaptive, the limit shrinks while the smoothed latency is above target and
+ * grows back slowly while it is below. A single long call (e.g. a long generation) only
+ * nudges the average, and after each change the limit is held for a full round of calls
+ * so it is judged on latency observed at the new level.
+ */
+public class LlmBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmBulkhead.class);
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final String name;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition permitReleased = lock.newCondition();
+
+    private int limit;
+    private int inFlight;
+    private int waiting;
+    private int callsSinceChange;
+    private double avgLatencyNanos;
+    private long rejectedCount;
+
+    public LlmBulkhead(String name, int maxConcurrent, int maxQueue, Duration maxWait,
+                       boolean adaptive, int minConcurrent, Duration targetLatency) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1 for bulkhead " + name);
+        }
+        this.name = name;
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.adaptive = adaptive;
+        this.maxLimit = maxConcurrent;
+        this.minLimit = Math.max(1, Math.min(minConcurrent, maxConcurrent));
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.limit = maxConcurrent;
+    }
+
+    public <T> T call(Supplier<T> work) {
+        try (Permit permit = acquire()) {
+            return work.get();
+        }
+    }
+
+    public void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for a slot, or sheds the caller, exactly as {@link #call} does. The returned
+     * permit must be closed; the call's latency is measured from here to the close. Lets a
+     * caller time the queue wait and the work as separate stages.
+     */
+    public Permit acquire() {
+        awaitSlot(System.nanoTime() + maxWaitNanos);
+        return new Permit();
+    }
+
+    private void awaitSlot(long deadline) {
+        lock.lock();
+        try {
+            if (inFlight < limit && waiting == 0) {
+                inFlight++;
+                return;
+            }
+            if (waiting >= maxQueue) {
+                throw reject("wait queue is full");
+            }
+            long remaining = deadline - System.nanoTime();
+            if (estimateWaitNanos(waiting + 1) > remaining) {
+                throw reject("expected wait exceeds deadline");
+            }
+
+            waiting++;
+            try {
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        throw reject("deadline exceeded while queued");
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("interrupted while queued");
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            avgLatencyNanos = avgLatencyNanos == 0
+                ? latencyNanos
+                : avgLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - avgLatencyNanos);
+
+            if (adaptive) {
+                adjustLimit();
+            }
+            if (inFlight < limit) {
+                permitReleased.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjustLimit() {
+        callsSinceChange = Math.min(callsSinceChange + 1, limit);
+        if (callsSinceChange < limit) {
+            return;
+        }
+        if (avgLatencyNanos > targetLatencyNanos) {
+            int reduced = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+            if (reduced == limit && limit > minLimit) {
+                reduced = limit - 1;
+            }
+            if (reduced != limit) {
+                logger.info("📉 Bulkhead '{}' limit {} -> {} (smoothed latency {} ms above target)",
+                    name, limit, reduced, TimeUnit.NANOSECONDS.toMillis((long) avgLatencyNanos));
+                limit = reduced;
+                callsSinceChange = 0;
+            }
+        } else if (limit < maxLimit) {
+            limit++;
+            callsSinceChange = 0;
+            logger.debug("📈 Bulkhead '{}' limit raised to {}", name, limit);
+        }
+    }
+
+    private long estimateWaitNanos(int queuePosition) {
+        if (avgLatencyNanos == 0) {
+            return 0;
+        }
+        long rounds = (queuePosition + limit - 1) / limit;
+        return (long) (rounds * avgLatencyNanos);
+    }
+
+    private LlmCapacityExceededException reject(String reason) {
+        rejectedCount++;
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(estimateWaitNanos(waiting + 1)) + 1);
+        logger.warn("🚫 Bulkhead '{}' shed a call: {} (inFlight={}, waiting={}, limit={})",
+            name, reason, inFlight, waiting, limit);
+        return new LlmCapacityExceededException(name, reason, retryAfterSeconds);
+    }
+
+    /**
+     * A slot held in this bulkhead; closing it releases the slot.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long acquiredNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(System.nanoTime() - acquiredNanos);
+            }
+        }
+    }
+
+    public String getName() { return name; }
+
+    public int getLimit() {
+        lock.lock();
+        try { return limit; } finally { lock.unlock(); }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try { return inFlight; } finally { lock.unlock(); }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try { return waiting; } finally { lock.unlock(); }
+    }
+
+    public long getRejectedCount() {
+        lock.lock();
+        try { return rejectedCount; } finally { lock.unlock(); }
+    }
+}
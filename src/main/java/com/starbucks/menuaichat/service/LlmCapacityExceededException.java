@@ -0,0 +1,20 @@
+package com.starbucks.menuaichat.service;
+
+/**
+ * Thrown when a model call is shed by an {@link LlmBulkhead} instead of being queued.
+ */
+public class LlmCapacityExceededException extends RuntimeException {
+
+    private final String bulkhead;
+    private final long retryAfterSeconds;
+
+    public LlmCapacityExceededException(String bulkhead, String reason, long retryAfterSeconds) {
+        super("LLM " + bulkhead + " capacity exceeded: " + reason);
+        this.bulkhead = bulkhead;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getBulkhead() { return bulkhead; }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
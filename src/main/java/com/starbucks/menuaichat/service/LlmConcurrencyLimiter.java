@@ -0,0 +1,111 @@
+package com.starbucks.menuaichat.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Separate bulkheads for chat generation and embedding calls, so a burst of
+ * generations cannot starve the (much cheaper) retrieval embeddings and vice versa.
+ * Offline evaluation generates through its own small bulkhead so a replay cannot
+ * fill the live chat queue and get real users shed.
+ */
+@Service
+public class LlmConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmConcurrencyLimiter.class);
+
+    @Value("${starbucks.llm.chat.max-concurrent:4}")
+    private int chatMaxConcurrent;
+
+    @Value("${starbucks.llm.chat.max-queue:16}")
+    private int chatMaxQueue;
+
+    @Value("${starbucks.llm.chat.max-wait:20s}")
+    private Duration chatMaxWait;
+
+    @Value("${starbucks.llm.chat.adaptive:false}")
+    private boolean chatAdaptive;
+
+    @Value("${starbucks.llm.chat.min-concurrent:1}")
+    private int chatMinConcurrent;
+
+    @Value("${starbucks.llm.chat.target-latency:15s}")
+    private Duration chatTargetLatency;
+
+    @Value("${starbucks.llm.embedding.max-concurrent:8}")
+    private int embeddingMaxConcurrent;
+
+    @Value("${starbucks.llm.embedding.max-queue:64}")
+    private int embeddingMaxQueue;
+
+    @Value("${starbucks.llm.embedding.max-wait:5s}")
+    private Duration embeddingMaxWait;
+
+    @Value("${starbucks.llm.embedding.adaptive:false}")
+    private boolean embeddingAdaptive;
+
+    @Value("${starbucks.llm.embedding.min-concurrent:1}")
+    private int embeddingMinConcurrent;
+
+    @Value("${starbucks.llm.embedding.target-latency:1s}")
+    private Duration embeddingTargetLatency;
+
+    @Value("${starbucks.llm.evaluation.max-concurrent:2}")
+    private int evaluationMaxConcurrent;
+
+    @Value("${starbucks.llm.evaluation.max-queue:16}")
+    private int evaluationMaxQueue;
+
+    @Value("${starbucks.llm.evaluation.max-wait:10m}")
+    private Duration evaluationMaxWait;
+
+    private LlmBulkhead chatBulkhead;
+    private LlmBulkhead embeddingBulkhead;
+    private LlmBulkhead evaluationBulkhead;
+
+    @PostConstruct
+    void init() {
+        chatBulkhead = new LlmBulkhead("chat", chatMaxConcurrent, chatMaxQueue, chatMaxWait,
+            chatAdaptive, chatMinConcurrent, chatTargetLatency);
+        embeddingBulkhead = new LlmBulkhead("embedding", embeddingMaxConcurrent, embeddingMaxQueue, embeddingMaxWait,
+            embeddingAdaptive, embeddingMinConcurrent, embeddingTargetLatency);
+        evaluationBulkhead = new LlmBulkhead("evaluation", evaluationMaxConcurrent, evaluationMaxQueue, evaluationMaxWait,
+            false, evaluationMaxConcurrent, chatTargetLatency);
+        logger.info("🚦 LLM bulkheads ready - chat: {} concurrent / {} queued, embedding: {} concurrent / {} queued, evaluation: {} concurrent",
+            chatMaxConcurrent, chatMaxQueue, embeddingMaxConcurrent, embeddingMaxQueue, evaluationMaxConcurrent);
+    }
+
+    /**
+     * Takes a chat slot for a caller that times the wait separately from the model call.
+     */
+    public LlmBulkhead.Permit acquireChat() {
+        return chatBulkhead.acquire();
+    }
+
+    public <T> T callEmbedding(Supplier<T> work) {
+        return embeddingBulkhead.call(work);
+    }
+
+    public void runEmbedding(Runnable work) {
+        embeddingBulkhead.run(work);
+    }
+
+    /**
+     * Takes an evaluation slot for a caller that times the wait separately from the model call.
+     */
+    public LlmBulkhead.Permit acquireEvaluation() {
+        return evaluationBulkhead.acquire();
+    }
+
+    public LlmBulkhead getChatBulkhead() { return chatBulkhead; }
+
+    public LlmBulkhead getEmbeddingBulkhead() { return embeddingBulkhead; }
+
+    public LlmBulkhead getEvaluationBulkhead() { return evaluationBulkhead; }
+}
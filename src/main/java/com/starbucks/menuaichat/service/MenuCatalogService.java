@@ -0,0 +1,171 @@
+package com.starbucks.menuaichat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starbucks.menuaichat.model.DrinkItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read-only menu views served from JSON bytes (plain and gzipped) that are serialized once
+ * per menu version. The whole snapshot is rebuilt on {@link MenuChangedEvent}; filtered
+ * listings are serialized on first use and kept until the next rebuild.
+ */
+@Service
+public class MenuCatalogService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MenuCatalogService.class);
+    
+    private static final int MAX_CACHED_FILTERS = 256;
+    
+    @Autowired
+    private MenuService menuService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private volatile Snapshot snapshot;
+    
+    @EventListener
+    public void onMenuChanged(MenuChangedEvent event) {
+        logger.info("☕ Menu changed ({} drinks), rebuilding catalog snapshot", event.drinkCount());
+        rebuild();
+    }
+    
+    public SerializedBody allDrinks() {
+        return current().all();
+    }
+    
+    public SerializedBody categories() {
+        return current().categories();
+    }
+    
+    public Optional<SerializedBody> drinksInCategory(String category) {
+        return Optional.ofNullable(current().byCategory().get(category.toLowerCase(Locale.ROOT)));
+    }
+    
+    public Optional<SerializedBody> drink(Long id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+    
+    /**
+     * Drinks within the given (inclusive, optional) calorie and caffeine bounds.
+     */
+    public SerializedBody filterDrinks(Integer minCalories, Integer maxCalories, Integer minCaffeine, Integer maxCaffeine) {
+        Snapshot current = current();
+        String key = minCalories + ":" + maxCalories + ":" + minCaffeine + ":" + maxCaffeine;
+        SerializedBody cached = current.filtered().get(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        List<DrinkItem> matches = current.drinks().stream()
+            .filter(drink -> within(drink.getCalories(), minCalories, maxCalories))
+            .filter(drink -> within(drink.getCaffeine(), minCaffeine, maxCaffeine))
+            .toList();
+        SerializedBody body = serialize(matches);
+        if (current.filtered().size() < MAX_CACHED_FILTERS) {
+            current.filtered().putIfAbsent(key, body);
+        }
+        return body;
+    }
+    
+    private static boolean within(Integer value, Integer min, Integer max) {
+        if (min == null && max == null) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        return (min == null || value >= min) && (max == null || value <= max);
+    }
+    
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+    
+    private synchronized Snapshot rebuild() {
+        long start = System.nanoTime();
+        List<DrinkItem> drinks = new ArrayList<>(menuService.getAllDrinks());
+        drinks.sort(Comparator.comparing(DrinkItem::getId));
+        
+        Map<String, SerializedBody> byCategory = new LinkedHashMap<>();
+        drinks.stream()
+            .filter(drink -> drink.getBeverageCategory() != null)
+            .collect(Collectors.groupingBy(drink -> drink.getBeverageCategory().toLowerCase(Locale.ROOT),
+                LinkedHashMap::new, Collectors.toList()))
+            .forEach((category, items) -> byCategory.put(category, serialize(items)));
+        
+        Map<Long, SerializedBody> byId = new HashMap<>();
+        for (DrinkItem drink : drinks) {
+            byId.put(drink.getId(), serialize(drink));
+        }
+        
+        TreeSet<String> categoryNames = drinks.stream()
+            .map(DrinkItem::getBeverageCategory)
+            .filter(category -> category != null)
+            .collect(Collectors.toCollection(TreeSet::new));
+        
+        Snapshot rebuilt = new Snapshot(List.copyOf(drinks), serialize(drinks), serialize(categoryNames),
+            Map.copyOf(byCategory), Map.copyOf(byId), new ConcurrentHashMap<>());
+        snapshot = rebuilt;
+        logger.info("📦 Catalog snapshot built: {} drinks, {} categories in {} ms",
+            drinks.size(), byCategory.size(), (System.nanoTime() - start) / 1_000_000);
+        return rebuilt;
+    }
+    
+    private SerializedBody serialize(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            String hash = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(MessageDigest.getInstance("SHA-256").digest(json)).substring(0, 22);
+            // Strong validators must differ per representation, hence a separate gzip tag
+            return new SerializedBody(json, compressed.toByteArray(), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize menu catalog", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * One pre-serialized JSON document in identity and gzip encodings with their ETags.
+     */
+    public record SerializedBody(byte[] json, byte[] gzip, String etag, String gzipEtag) {}
+    
+    private record Snapshot(List<DrinkItem> drinks,
+                            SerializedBody all,
+                            SerializedBody categories,
+                            Map<String, SerializedBody> byCategory,
+                            Map<Long, SerializedBody> byId,
+                            Map<String, SerializedBody> filtered) {}
+}
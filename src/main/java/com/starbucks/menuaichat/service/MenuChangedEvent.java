@@ -0,0 +1,6 @@
+package com.starbucks.menuaichat.service;
+
+/**
+ * Published whenever the drink menu has been (re)loaded, so derived caches can rebuild.
+ */
+public record MenuChangedEvent(int drinkCount) {}
@@ -6,22 +6,39 @@ import org.springframework.ai.document.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class MenuService {
     
     private static final Logger logger = LoggerFactory.getLogger(MenuService.class);
     
+    private static final Set<String> SIZES = Set.of("Short", "Tall", "Grande", "Venti", "Solo", "Doppio");
+    
     @Autowired
     private DrinkItemRepository drinkItemRepository;
     
     @Autowired
     private SpringAiVectorService springAiVectorService;
     
+    @Value("${starbucks.retrieval.candidate-multiplier:6}")
+    private int candidateMultiplier;
+    
+    @Value("${starbucks.retrieval.mmr-lambda:0.7}")
+    private double mmrLambda;
+    
     public List<DrinkItem> getAllDrinks() {
         return (List<DrinkItem>) drinkItemRepository.findAll();
     }
@@ -33,72 +50,269 @@ public class MenuService {
         return results;
     }
     
+    /**
+     * Formats drinks for the prompt, folding every size/milk variant of a beverage into one
+     * compact row. Beverages keep the order in which they first appear in the list. The menu
+     * names the size only on the first prep of each size ("Tall Nonfat Milk", then "2% Milk"),
+     * so a variant without one inherits the size of the variant before it.
+     */
     public String formatDrinksForAI(List<DrinkItem> drinks) {
         if (drinks.isEmpty()) {
             return "No drinks found matching the criteria.";
         }
         
+        Map<BeverageKey, List<DrinkItem>> variantsByBeverage = new LinkedHashMap<>();
+        for (DrinkItem drink : drinks) {
+            variantsByBeverage.computeIfAbsent(BeverageKey.of(drink), k -> new ArrayList<>()).add(drink);
+        }
+        
         StringBuilder sb = new StringBuilder();
-        sb.append("Found ").append(drinks.size()).append(" drinks:\n\n");
+        sb.append("Found ").append(variantsByBeverage.size()).append(" drinks:\n\n");
         
-        for (DrinkItem drink : drinks) {
-            sb.append("• ").append(drink.getBeverage())
-              .append(" (").append(drink.getBeveragePrep()).append(")")
-              .append(" - Category: ").append(drink.getBeverageCategory())
-              .append("\n  Nutrition: ").append(drink.getCalories()).append(" cal, ")
-              .append(drink.getCaffeine()).append("mg caffeine, ")
-              .append(drink.getTotalFat()).append("g fat, ")
-              .append(drink.getProtein()).append("g protein\n\n");
+        for (Map.Entry<BeverageKey, List<DrinkItem>> entry : variantsByBeverage.entrySet()) {
+            List<DrinkItem> variants = entry.getValue();
+            sb.append("• ").append(entry.getKey().beverage())
+              .append(" - Category: ").append(entry.getKey().category())
+              .append("\n  Variants: ");
+            String size = null;
+            for (int i = 0; i < variants.size(); i++) {
+                DrinkItem variant = variants.get(i);
+                String prep = variant.getBeveragePrep();
+                String prepSize = sizeOf(prep);
+                if (prepSize != null) {
+                    size = prepSize;
+                } else if (size != null) {
+                    prep = size + " " + prep;
+                }
+                if (i > 0) {
+                    sb.append("; ");
+                }
+                sb.append(prep).append(": ")
+                  .append(variant.getCalories()).append(" cal, ")
+                  .append(variant.getCaffeine()).append("mg caffeine");
+            }
+            sb.append("\n\n");
         }
         
         return sb.toString();
     }
     
+    private static String sizeOf(String prep) {
+        if (prep == null) {
+            return null;
+        }
+        int space = prep.indexOf(' ');
+        String firstWord = space < 0 ? prep : prep.substring(0, space);
+        return SIZES.contains(firstWord) ? firstWord : null;
+    }
+    
+    /**
+     * Returns all variants of the {@code limit} most relevant distinct beverages for the query.
+     */
     public List<DrinkItem> findSimilarDrinksByDescription(String query, int limit) {
         logger.debug("🔍 Spring AI vector search for drinks by description: '{}'", query);
-        List<Document> documents = springAiVectorService.searchSimilarDrinksByDescription(query, limit);
+        return collapseAndHydrate(retrieve(query.length(),
+            () -> springAiVectorService.searchSimilarDrinksByDescription(query, limit * candidateMultiplier)), limit, "description");
+    }
+    
+    /**
+     * Same as {@link #findSimilarDrinksByDescription(String, int)} for a query that is already embedded.
+     */
+    public List<DrinkItem> findSimilarDrinksByDescription(float[] queryEmbedding, int limit) {
+        return collapseAndHydrate(retrieve(queryEmbedding.length,
+            () -> springAiVectorService.searchSimilarDrinksByDescription(queryEmbedding, limit * candidateMultiplier)), limit, "description");
+    }
+    
+    /**
+     * Returns all variants of the {@code limit} most relevant distinct beverages for the query.
+     */
+    public List<DrinkItem> findSimilarDrinksByNutrition(String query, int limit) {
+        logger.debug("🔍 Spring AI vector search for drinks by nutrition: '{}'", query);
+        return collapseAndHydrate(retrieve(query.length(),
+            () -> springAiVectorService.searchSimilarDrinksByNutrition(query, limit * candidateMultiplier)), limit, "nutrition");
+    }
+    
+    /**
+     * Same as {@link #findSimilarDrinksByNutrition(String, int)} for a query that is already embedded.
+     */
+    public List<DrinkItem> findSimilarDrinksByNutrition(float[] queryEmbedding, int limit) {
+        return collapseAndHydrate(retrieve(queryEmbedding.length,
+            () -> springAiVectorService.searchSimilarDrinksByNutrition(queryEmbedding, limit * candidateMultiplier)), limit, "nutrition");
+    }
+    
+    /**
+     * Builds the menu section of the prompt: the closest beverages by description, plus the
+     * closest by nutrition when the message mentions nutritional goals. {@code queryEmbedding}
+     * may be null, in which case the message is embedded once here, as its own trace stage,
+     * and both searches reuse that embedding.
+     */
+    public String buildMenuContext(String userMessage, float[] queryEmbedding) {
+        logger.debug("Analyzing user message for menu context using vector search: {}", userMessage);
+        StringBuilder context = new StringBuilder();
+        
+        float[] embedding = queryEmbedding != null ? queryEmbedding
+            : ChatTrace.traceCurrent(ChatTrace.EMBEDDING, userMessage.length(),
+                () -> springAiVectorService.embed(userMessage), vector -> vector.length);
+        
+        // Use vector search to find semantically similar drinks by description
+        List<DrinkItem> similarDrinks = findSimilarDrinksByDescription(embedding, 8);
+        if (!similarDrinks.isEmpty()) {
+            context.append("Relevant Drinks Based on Your Request:\n")
+                   .append(formatDrinksForAI(similarDrinks))
+                   .append("\n");
+        }
+        
+        // If the message seems nutrition-focused, also search by nutritional similarity
+        if (needsNutritionSearch(userMessage)) {
+            List<DrinkItem> nutritionalMatches = findSimilarDrinksByNutrition(embedding, 5);
+            if (!nutritionalMatches.isEmpty()) {
+                context.append("Nutritionally Similar Options:\n")
+                       .append(formatDrinksForAI(nutritionalMatches))
+                       .append("\n");
+            }
+        }
+        
+        logger.debug("Generated context with {} characters using vector search", context.length());
+        return context.toString();
+    }
+    
+    /**
+     * Whether {@link #buildMenuContext} adds a nutrition search for this message.
+     */
+    public boolean needsNutritionSearch(String userMessage) {
+        return containsNutritionalKeywords(userMessage.toLowerCase());
+    }
+    
+    private boolean containsNutritionalKeywords(String message) {
+        String[] nutritionalKeywords = {
+            "calorie", "calories", "fat", "protein", "caffeine", "sugar", "carb", "carbohydrate",
+            "diet", "healthy", "low", "high", "nutrition", "nutritional", "energy", "vitamin"
+        };
         
+        for (String keyword : nutritionalKeywords) {
+            if (message.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static List<Document> retrieve(long querySize, Supplier<List<Document>> search) {
+        return ChatTrace.traceCurrent(ChatTrace.RETRIEVAL, querySize, search, List::size);
+    }
+    
+    private List<DrinkItem> collapseAndHydrate(List<Document> documents, int limit, String searchType) {
         if (documents.isEmpty()) {
-            logger.info("📊 No similar drinks found by description for query: '{}'", query);
+            logger.info("📊 No similar drinks found by {}", searchType);
             return List.of();
         }
         
-        List<Long> drinkIds = documents.stream()
-            .map(doc -> Long.parseLong(doc.getMetadata().get("drink_id").toString()))
-            .distinct()
-            .toList();
-        
-        if (drinkIds.isEmpty()) {
-            logger.info("📊 No valid drink IDs found in vector search results");
+        List<BeverageKey> beverages = diversify(documents, limit);
+        List<DrinkItem> results = ChatTrace.traceCurrent(ChatTrace.HYDRATION, beverages.size(),
+            () -> hydrateBeverages(beverages), List::size);
+        logger.info("📊 Spring AI found {} variant rows across {} beverages by {}", results.size(), beverages.size(), searchType);
+        return results;
+    }
+    
+    private List<DrinkItem> hydrateBeverages(List<BeverageKey> beverages) {
+        if (beverages.isEmpty()) {
+            logger.info("📊 No valid beverages found in vector search results");
             return List.of();
         }
         
-        List<DrinkItem> results = drinkItemRepository.findByIdIn(drinkIds);
-        logger.info("📊 Spring AI found {} similar drinks by description", results.size());
+        // Keep the diversified beverage order; variants stay in menu order within a beverage
+        Map<BeverageKey, Integer> rank = new HashMap<>();
+        for (int i = 0; i < beverages.size(); i++) {
+            rank.put(beverages.get(i), i);
+        }
+        List<String> names = beverages.stream().map(BeverageKey::beverage).distinct().toList();
+        List<DrinkItem> results = new ArrayList<>();
+        for (DrinkItem drink : drinkItemRepository.findByBeverageIn(names)) {
+            // The same beverage name can appear under more than one category
+            if (rank.containsKey(BeverageKey.of(drink))) {
+                results.add(drink);
+            }
+        }
+        results.sort(Comparator.comparingInt(drink -> rank.get(BeverageKey.of(drink))));
         return results;
     }
     
-    public List<DrinkItem> findSimilarDrinksByNutrition(String query, int limit) {
-        logger.debug("🔍 Spring AI vector search for drinks by nutrition: '{}'", query);
-        List<Document> documents = springAiVectorService.searchSimilarDrinksByNutrition(query, limit);
+    /**
+     * Collapses variant hits into one candidate per beverage (scored by its best variant) and
+     * picks {@code limit} of them by maximal marginal relevance. Redundancy between beverages is
+     * the cosine similarity of the stored embeddings of their best variants.
+     */
+    private List<BeverageKey> diversify(List<Document> documents, int limit) {
+        Map<String, String> categoryByDrinkId = resolveMissingCategories(documents);
+        Map<BeverageKey, BeverageCandidate> candidates = new LinkedHashMap<>();
+        for (int rankIndex = 0; rankIndex < documents.size(); rankIndex++) {
+            Document doc = documents.get(rankIndex);
+            Object beverage = doc.getMetadata().get("beverage");
+            Object category = doc.getMetadata().get("category");
+            if (category == null) {
+                category = categoryByDrinkId.get(String.valueOf(doc.getMetadata().get("drink_id")));
+            }
+            if (beverage == null || category == null) {
+                continue;
+            }
+            double relevance = doc.getScore() != null ? doc.getScore() : 1.0 / (rankIndex + 1);
+            BeverageKey key = new BeverageKey(category.toString(), beverage.toString());
+            candidates.merge(key, new BeverageCandidate(key, doc.getId(), relevance),
+                (existing, incoming) -> existing.relevance() >= incoming.relevance() ? existing : incoming);
+        }
         
-        if (documents.isEmpty()) {
-            logger.info("📊 No similar drinks found by nutrition for query: '{}'", query);
-            return List.of();
+        Map<String, float[]> embeddings = springAiVectorService.getEmbeddings(
+            candidates.values().stream().map(BeverageCandidate::documentId).toList());
+        List<BeverageCandidate> remaining = new ArrayList<>(candidates.values());
+        List<BeverageCandidate> selected = new ArrayList<>();
+        while (selected.size() < limit && !remaining.isEmpty()) {
+            BeverageCandidate best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (BeverageCandidate candidate : remaining) {
+                double redundancy = 0;
+                for (BeverageCandidate chosen : selected) {
+                    redundancy = Math.max(redundancy,
+                        SpringAiVectorService.cosine(embeddings.get(candidate.documentId()), embeddings.get(chosen.documentId())));
+                }
+                double score = mmrLambda * candidate.relevance() - (1 - mmrLambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = candidate;
+                }
+            }
+            selected.add(best);
+            remaining.remove(best);
         }
         
+        logger.debug("Collapsed {} vector hits into {} beverages, selected {}", documents.size(), candidates.size(), selected.size());
+        return selected.stream().map(BeverageCandidate::key).toList();
+    }
+    
+    /**
+     * Categories for hits whose metadata predates the category field (nutrition documents
+     * written before it was added), looked up by drink id.
+     */
+    private Map<String, String> resolveMissingCategories(List<Document> documents) {
         List<Long> drinkIds = documents.stream()
-            .map(doc -> Long.parseLong(doc.getMetadata().get("drink_id").toString()))
+            .filter(doc -> doc.getMetadata().get("category") == null && doc.getMetadata().get("drink_id") != null)
+            .map(doc -> Long.valueOf(doc.getMetadata().get("drink_id").toString()))
             .distinct()
             .toList();
-        
         if (drinkIds.isEmpty()) {
-            logger.info("📊 No valid drink IDs found in nutrition vector search results");
-            return List.of();
+            return Map.of();
         }
-        
-        List<DrinkItem> results = drinkItemRepository.findByIdIn(drinkIds);
-        logger.info("📊 Spring AI found {} similar drinks by nutrition", results.size());
-        return results;
+        return drinkItemRepository.findByIdIn(drinkIds).stream()
+            .collect(Collectors.toMap(drink -> drink.getId().toString(), DrinkItem::getBeverageCategory));
     }
-}
\ No newline at end of file
+    
+    /**
+     * A beverage is identified by its category and name; "Coffee" exists under two categories.
+     */
+    private record BeverageKey(String category, String beverage) {
+        static BeverageKey of(DrinkItem drink) {
+            return new BeverageKey(drink.getBeverageCategory(), drink.getBeverage());
+        }
+    }
+    
+    private record BeverageCandidate(BeverageKey key, String documentId, double relevance) {}
+}
@@ -0,0 +1,117 @@
+package com.starbucks.menuaichat.service;
+
+import org.springframework.ai.ollama.api.OllamaApi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One Ollama server in an {@link OllamaEndpointPool}: the model client bound to it,
+ * its outstanding request count, health state and latency statistics.
+ */
+public class OllamaEndpoint<M> {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String baseUrl;
+    private final M model;
+    private final OllamaApi healthCheckApi;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private volatile boolean healthy = true;
+    private int consecutiveFailures;
+    private int consecutiveHealthyChecks;
+
+    private long requestCount;
+    private long failureCount;
+    private double avgLatencyMs;
+    private long maxLatencyMs;
+
+    public OllamaEndpoint(String baseUrl, M model, OllamaApi healthCheckApi) {
+        this.baseUrl = baseUrl;
+        this.model = model;
+        this.healthCheckApi = healthCheckApi;
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    synchronized void recordSuccess(long latencyNanos) {
+        consecutiveFailures = 0;
+        recordLatency(latencyNanos);
+    }
+
+    /**
+     * @return true if this failure ejected the endpoint
+     */
+    synchronized boolean recordFailure(long latencyNanos, int ejectAfterFailures) {
+        failureCount++;
+        recordLatency(latencyNanos);
+        consecutiveFailures++;
+        if (healthy && consecutiveFailures >= ejectAfterFailures) {
+            healthy = false;
+            consecutiveHealthyChecks = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the health state changed
+     */
+    synchronized boolean recordHealthCheck(boolean reachable, int readmitAfterSuccesses) {
+        if (!reachable) {
+            consecutiveHealthyChecks = 0;
+            if (healthy) {
+                healthy = false;
+                return true;
+            }
+            return false;
+        }
+        consecutiveHealthyChecks++;
+        if (!healthy && consecutiveHealthyChecks >= readmitAfterSuccesses) {
+            healthy = true;
+            consecutiveFailures = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private void recordLatency(long latencyNanos) {
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        requestCount++;
+        avgLatencyMs = requestCount == 1 ? latencyMs : avgLatencyMs + LATENCY_SMOOTHING * (latencyMs - avgLatencyMs);
+        maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+    }
+
+    public String getBaseUrl() { return baseUrl; }
+
+    public M getModel() { return model; }
+
+    OllamaApi getHealthCheckApi() { return healthCheckApi; }
+
+    public int getOutstanding() { return outstanding.get(); }
+
+    public boolean isHealthy() { return healthy; }
+
+    synchronized double getAvgLatencyMs() { return avgLatencyMs; }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("baseUrl", baseUrl);
+        stats.put("healthy", healthy);
+        stats.put("outstanding", outstanding.get());
+        stats.put("requests", requestCount);
+        stats.put("failures", failureCount);
+        stats.put("avgLatencyMs", Math.round(avgLatencyMs));
+        stats.put("maxLatencyMs", maxLatencyMs);
+        return stats;
+    }
+}
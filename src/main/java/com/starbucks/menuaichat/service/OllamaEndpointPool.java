@@ -0,0 +1,160 @@
+package com.starbucks.menuaichat.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Routes model calls across several Ollama servers by least outstanding requests.
+ * Endpoints are ejected after consecutive transport failures or a failed health check,
+ * and re-admitted once the health check has passed enough times in a row.
+ */
+public class OllamaEndpointPool<M> {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaEndpointPool.class);
+
+    private final String name;
+    private final List<OllamaEndpoint<M>> endpoints;
+    private final int ejectAfterFailures;
+    private final int readmitAfterSuccesses;
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    public OllamaEndpointPool(String name, List<OllamaEndpoint<M>> endpoints,
+                              int ejectAfterFailures, int readmitAfterSuccesses) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("Ollama pool '" + name + "' needs at least one endpoint");
+        }
+        this.name = name;
+        this.endpoints = List.copyOf(endpoints);
+        this.ejectAfterFailures = Math.max(1, ejectAfterFailures);
+        this.readmitAfterSuccesses = Math.max(1, readmitAfterSuccesses);
+    }
+
+    public <T> T execute(Function<M, T> call) {
+        OllamaEndpoint<M> endpoint = choose(null);
+        try {
+            return invoke(endpoint, call);
+        } catch (ResourceAccessException e) {
+            // The request never reached the server, so it is safe to send it elsewhere once
+            OllamaEndpoint<M> fallback = choose(endpoint);
+            if (fallback == endpoint) {
+                throw e;
+            }
+            logger.warn("🔁 Ollama {} endpoint {} unreachable, retrying on {}",
+                name, endpoint.getBaseUrl(), fallback.getBaseUrl());
+            return invoke(fallback, call);
+        }
+    }
+
+    public <T> Flux<T> executeStream(Function<M, Flux<T>> call) {
+        return Flux.defer(() -> {
+            OllamaEndpoint<M> endpoint = choose(null);
+            endpoint.begin();
+            long start = System.nanoTime();
+            return call.apply(endpoint.getModel())
+                .doOnComplete(() -> endpoint.recordSuccess(System.nanoTime() - start))
+                .doOnError(e -> handleFailure(endpoint, e, System.nanoTime() - start))
+                .doFinally(signal -> endpoint.end());
+        });
+    }
+
+    private <T> T invoke(OllamaEndpoint<M> endpoint, Function<M, T> call) {
+        endpoint.begin();
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(endpoint.getModel());
+            endpoint.recordSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            handleFailure(endpoint, e, System.nanoTime() - start);
+            throw e;
+        } finally {
+            endpoint.end();
+        }
+    }
+
+    private void handleFailure(OllamaEndpoint<M> endpoint, Throwable e, long latencyNanos) {
+        if (!isEndpointFailure(e)) {
+            endpoint.recordSuccess(latencyNanos);
+            return;
+        }
+        if (endpoint.recordFailure(latencyNanos, ejectAfterFailures)) {
+            logger.warn("⛔ Ejected Ollama {} endpoint {} after {} consecutive failures: {}",
+                name, endpoint.getBaseUrl(), ejectAfterFailures, e.getMessage());
+        }
+    }
+
+    private boolean isEndpointFailure(Throwable e) {
+        return e instanceof ResourceAccessException
+            || e instanceof HttpServerErrorException
+            || e instanceof WebClientRequestException
+            || e instanceof TransientAiException;
+    }
+
+    /**
+     * Picks the healthy endpoint with the fewest outstanding requests, breaking ties by
+     * latency and then by a rotating start offset. If every endpoint is ejected the whole
+     * pool is considered, so a pool-wide blip degrades rather than fails outright.
+     */
+    private OllamaEndpoint<M> choose(OllamaEndpoint<M> exclude) {
+        OllamaEndpoint<M> best = pick(exclude, true);
+        if (best == null) {
+            best = pick(exclude, false);
+        }
+        return best != null ? best : exclude;
+    }
+
+    private OllamaEndpoint<M> pick(OllamaEndpoint<M> exclude, boolean healthyOnly) {
+        int size = endpoints.size();
+        int offset = Math.floorMod(rotation.getAndIncrement(), size);
+        OllamaEndpoint<M> best = null;
+        for (int i = 0; i < size; i++) {
+            OllamaEndpoint<M> candidate = endpoints.get((offset + i) % size);
+            if (candidate == exclude || (healthyOnly && !candidate.isHealthy())) {
+                continue;
+            }
+            if (best == null
+                || candidate.getOutstanding() < best.getOutstanding()
+                || (candidate.getOutstanding() == best.getOutstanding()
+                    && candidate.getAvgLatencyMs() < best.getAvgLatencyMs())) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    public void checkHealth() {
+        for (OllamaEndpoint<M> endpoint : endpoints) {
+            boolean reachable;
+            try {
+                endpoint.getHealthCheckApi().listModels();
+                reachable = true;
+            } catch (RuntimeException e) {
+                logger.debug("Health check failed for Ollama {} endpoint {}: {}", name, endpoint.getBaseUrl(), e.getMessage());
+                reachable = false;
+            }
+            if (endpoint.recordHealthCheck(reachable, readmitAfterSuccesses)) {
+                if (endpoint.isHealthy()) {
+                    logger.info("✅ Re-admitted Ollama {} endpoint {}", name, endpoint.getBaseUrl());
+                } else {
+                    logger.warn("⛔ Ejected Ollama {} endpoint {} after failed health check", name, endpoint.getBaseUrl());
+                }
+            }
+        }
+    }
+
+    public String getName() { return name; }
+
+    public List<Map<String, Object>> getEndpointStats() {
+        return endpoints.stream().map(OllamaEndpoint::getStats).toList();
+    }
+}
@@ -0,0 +1,23 @@
+package com.starbucks.menuaichat.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically probes every Ollama endpoint so ejected servers can be re-admitted.
+ */
+@Component
+public class OllamaHealthChecker {
+
+    @Autowired
+    private List<OllamaEndpointPool<?>> pools;
+
+    @Scheduled(fixedDelayString = "${starbucks.ollama.health-check-interval:10s}",
+               initialDelayString = "${starbucks.ollama.health-check-interval:10s}")
+    public void checkEndpoints() {
+        pools.forEach(OllamaEndpointPool::checkHealth);
+    }
+}
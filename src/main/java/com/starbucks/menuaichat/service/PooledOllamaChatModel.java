@@ -0,0 +1,37 @@
+package com.starbucks.menuaichat.service;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link ChatModel} that spreads calls over the chat {@link OllamaEndpointPool}.
+ */
+public class PooledOllamaChatModel implements ChatModel {
+
+    private final OllamaEndpointPool<OllamaChatModel> pool;
+    private final ChatOptions defaultOptions;
+
+    public PooledOllamaChatModel(OllamaEndpointPool<OllamaChatModel> pool, ChatOptions defaultOptions) {
+        this.pool = pool;
+        this.defaultOptions = defaultOptions;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return pool.execute(model -> model.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return pool.executeStream(model -> model.stream(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return defaultOptions;
+    }
+}
@@ -0,0 +1,30 @@
+package com.starbucks.menuaichat.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.AbstractEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+
+/**
+ * {@link org.springframework.ai.embedding.EmbeddingModel} that spreads calls over the
+ * embedding {@link OllamaEndpointPool}.
+ */
+public class PooledOllamaEmbeddingModel extends AbstractEmbeddingModel {
+
+    private final OllamaEndpointPool<OllamaEmbeddingModel> pool;
+
+    public PooledOllamaEmbeddingModel(OllamaEndpointPool<OllamaEmbeddingModel> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return pool.execute(model -> model.call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return pool.execute(model -> model.embed(document));
+    }
+}
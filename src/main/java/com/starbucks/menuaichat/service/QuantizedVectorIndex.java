@@ -0,0 +1,339 @@
+package com.starbucks.menuaichat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional quantized search done inside pgvector. An HNSW expression index is kept over either
+ * {@code binary_quantize(embedding)} (Hamming distance, 1 bit per dimension) or
+ * {@code embedding::halfvec} (cosine, 2 bytes per dimension). A search walks that index for
+ * {@code rerank-multiplier} × limit candidates and re-ranks them by exact cosine distance on
+ * the full-precision column in the same query. No vectors are copied into the application,
+ * and a lookup stays an index walk rather than a scan. pgvector has no 8-bit vector type, so
+ * int8 scalar quantization is not offered: {@code halfvec} halves the footprint without
+ * really quantizing, and {@code binary} is the only true quantization here.
+ */
+@Service
+public class QuantizedVectorIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuantizedVectorIndex.class);
+
+    // pgvector caps hnsw.ef_search at 1000
+    private static final int MAX_EF_SEARCH = 1000;
+
+    enum Mode {
+        NONE, HALFVEC, BINARY;
+
+        static Mode parse(String value) {
+            return switch (value == null ? "none" : value.trim().toLowerCase(Locale.ROOT)) {
+                case "halfvec" -> HALFVEC;
+                case "binary" -> BINARY;
+                case "none", "" -> NONE;
+                default -> throw new IllegalArgumentException(
+                    "Unknown starbucks.vector.quantization '" + value + "', expected none, halfvec or binary");
+            };
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${starbucks.vector.quantization:none}")
+    private String quantization;
+
+    @Value("${starbucks.vector.rerank-multiplier:4}")
+    private int rerankMultiplier;
+
+    @Value("${spring.ai.vectorstore.pgvector.schema-name:public}")
+    private String vectorSchema;
+
+    @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}")
+    private String vectorTable;
+
+    @Value("${spring.ai.vectorstore.pgvector.dimensions:768}")
+    private int dimensions;
+
+    private Mode mode;
+    private volatile boolean ready;
+
+    @PostConstruct
+    void init() {
+        mode = Mode.parse(quantization);
+    }
+
+    public boolean isActive() {
+        return mode != Mode.NONE && ready;
+    }
+
+    @EventListener
+    public void onMenuChanged(MenuChangedEvent event) {
+        if (mode != Mode.NONE) {
+            ensureIndex();
+        }
+    }
+
+    /**
+     * Creates the expression index for the configured mode. Needs pgvector 0.7 or newer for
+     * {@code halfvec} and {@code binary_quantize}; on failure searches stay on the float index.
+     */
+    public synchronized void ensureIndex() {
+        ready = createIndex(mode);
+        if (!ready) {
+            logger.warn("⚠️ {} vector index unavailable, using full-precision search", mode);
+        }
+    }
+
+    private boolean createIndex(Mode indexMode) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + indexName(indexMode) + " ON " + table()
+                + " USING hnsw ((" + indexedExpression(indexMode) + ") " + operatorClass(indexMode) + ")");
+            logger.info("🗜️ {} vector index {} ready in {} ms", indexMode, indexName(indexMode),
+                (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (DataAccessException e) {
+            logger.error("❌ Could not create {} vector index: {}", indexMode, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean indexExists(Mode indexMode) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_indexes WHERE schemaname = ? AND indexname = ?)",
+            Boolean.class, vectorSchema, indexName(indexMode)));
+    }
+
+    public List<Document> search(float[] queryEmbedding, String type, int limit) {
+        return search(mode, queryEmbedding, type, limit, limit * Math.max(1, rerankMultiplier), null);
+    }
+
+    /**
+     * Coarse top-{@code candidates} by the quantized distance, re-ranked to {@code limit} by exact
+     * cosine distance. With {@code candidates == limit} this is the quantized search alone.
+     */
+    private List<Document> search(Mode searchMode, float[] queryEmbedding, String type, int limit, int candidates,
+                                  String excludeId) {
+        String vector = SpringAiVectorService.toVectorLiteral(queryEmbedding);
+        String sql = "SELECT id, content, metadata, embedding <=> CAST(? AS vector) AS distance FROM ("
+            + coarseQuery(searchMode, excludeId != null) + ") candidates ORDER BY distance LIMIT ?";
+        Object[] args = excludeId != null
+            ? new Object[] {vector, type, excludeId, vector, candidates, limit}
+            : new Object[] {vector, type, vector, candidates, limit};
+
+        // The type filter is applied after the index walk, so widen the walk to leave enough rows
+        int efSearch = Math.min(MAX_EF_SEARCH, Math.max(40, candidates * 2));
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+            return jdbcTemplate.query(sql, (rs, rowNum) -> Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(parseMetadata(rs.getString("metadata")))
+                    .score(1.0 - rs.getDouble("distance"))
+                    .build(),
+                args);
+        });
+    }
+
+    private String coarseQuery(Mode searchMode, boolean excludeSelf) {
+        return "SELECT id, content, metadata, embedding FROM " + table()
+            + " WHERE metadata->>'type' = ?" + (excludeSelf ? " AND id <> CAST(? AS uuid)" : "")
+            + " ORDER BY " + indexedExpression(searchMode) + " " + coarseDistance(searchMode) + " LIMIT ?";
+    }
+
+    /**
+     * Whether the planner walks the encoding's HNSW index for the coarse search, rather than
+     * scanning and ranking every row by the quantized distance.
+     */
+    private boolean isIndexBacked(Mode searchMode, float[] queryEmbedding, String type, int candidates) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + coarseQuery(searchMode, false), String.class,
+            type, SpringAiVectorService.toVectorLiteral(queryEmbedding), candidates);
+        return plan.stream().anyMatch(line -> line.contains(indexName(searchMode)));
+    }
+
+    private List<String> exactSearch(String queryId, String type, int k) {
+        // Sequential scan, so the float HNSW index's own approximation does not skew the baseline
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+            return jdbcTemplate.queryForList("SELECT id FROM " + table()
+                    + " WHERE metadata->>'type' = ? AND id <> CAST(? AS uuid)"
+                    + " ORDER BY embedding <=> (SELECT embedding FROM " + table() + " WHERE id = CAST(? AS uuid)) LIMIT ?",
+                String.class, type, queryId, queryId, k);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("active", isActive());
+        stats.put("rerankMultiplier", rerankMultiplier);
+        stats.put("indexes", indexSizes());
+        return stats;
+    }
+
+    /**
+     * Measures recall@k of halfvec and binary search against exact cosine search, with and
+     * without the full-precision re-rank, plus mean latency per path. Sampled stored vectors
+     * serve as queries and are excluded from their own results. Both expression indexes are
+     * built for the run, so each encoding is measured as an HNSW walk; indexes the configured
+     * mode does not use are dropped afterwards, once their sizes have been reported next to
+     * the table size. Each encoding reports whether the planner actually used its index.
+     */
+    public synchronized Map<String, Object> benchmark(int queryCount, int k) {
+        List<Map<String, Object>> samples = jdbcTemplate.queryForList(
+            "SELECT id::text AS id, embedding::text AS embedding, metadata->>'type' AS type FROM " + table()
+                + " ORDER BY random() LIMIT ?", queryCount);
+        if (samples.isEmpty()) {
+            return Map.of("error", "vector store is empty");
+        }
+
+        List<Mode> temporary = new ArrayList<>();
+        for (Mode encoding : List.of(Mode.HALFVEC, Mode.BINARY)) {
+            if (!indexExists(encoding)) {
+                if (!createIndex(encoding)) {
+                    return Map.of("error", encoding.name().toLowerCase(Locale.ROOT)
+                        + " index could not be created, pgvector 0.7 or newer is required");
+                }
+                if (encoding != mode) {
+                    temporary.add(encoding);
+                }
+            }
+        }
+        try {
+            return runBenchmark(samples, k);
+        } finally {
+            for (Mode encoding : temporary) {
+                jdbcTemplate.execute("DROP INDEX IF EXISTS " + vectorSchema + "." + indexName(encoding));
+            }
+        }
+    }
+
+    private Map<String, Object> runBenchmark(List<Map<String, Object>> samples, int k) {
+        int candidateCount = k * Math.max(1, rerankMultiplier);
+        double[] recall = new double[4];
+        long[] nanos = new long[3];
+        for (Map<String, Object> sample : samples) {
+            String id = (String) sample.get("id");
+            String type = (String) sample.get("type");
+            float[] query = SpringAiVectorService.parseVectorLiteral((String) sample.get("embedding"));
+
+            long start = System.nanoTime();
+            Set<String> exact = new HashSet<>(exactSearch(id, type, k));
+            nanos[0] += System.nanoTime() - start;
+
+            recall[0] += recall(exact, search(Mode.HALFVEC, query, type, k, k, id), k);
+            start = System.nanoTime();
+            recall[1] += recall(exact, search(Mode.HALFVEC, query, type, k, candidateCount, id), k);
+            nanos[1] += System.nanoTime() - start;
+            recall[2] += recall(exact, search(Mode.BINARY, query, type, k, k, id), k);
+            start = System.nanoTime();
+            recall[3] += recall(exact, search(Mode.BINARY, query, type, k, candidateCount, id), k);
+            nanos[2] += System.nanoTime() - start;
+        }
+
+        int queries = samples.size();
+        Map<String, Object> first = samples.get(0);
+        float[] planQuery = SpringAiVectorService.parseVectorLiteral((String) first.get("embedding"));
+        String planType = (String) first.get("type");
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", mode);
+        report.put("queries", queries);
+        report.put("k", k);
+        report.put("rerankCandidates", candidateCount);
+        report.put("exact", Map.of("recall", 1.0, "avgMicros", nanos[0] / queries / 1000));
+        report.put("halfvec", Map.of("recallCoarse", recall[0] / queries, "recallReranked", recall[1] / queries,
+            "avgMicros", nanos[1] / queries / 1000,
+            "indexBacked", isIndexBacked(Mode.HALFVEC, planQuery, planType, candidateCount)));
+        report.put("binary", Map.of("recallCoarse", recall[2] / queries, "recallReranked", recall[3] / queries,
+            "avgMicros", nanos[2] / queries / 1000,
+            "indexBacked", isIndexBacked(Mode.BINARY, planQuery, planType, candidateCount)));
+        report.put("indexes", indexSizes());
+        logger.info("🗜️ Quantization benchmark: {}", report);
+        return report;
+    }
+
+    private static double recall(Set<String> exact, List<Document> found, int k) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        long hits = found.stream().map(Document::getId).filter(exact::contains).count();
+        return (double) hits / Math.min(k, exact.size());
+    }
+
+    private Map<String, Object> indexSizes() {
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT c.relname, pg_relation_size(c.oid) AS bytes FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indexrelid WHERE i.indrelid = CAST(? AS regclass) ORDER BY c.relname",
+            rs -> {
+                sizes.put(rs.getString("relname"), rs.getLong("bytes"));
+            },
+            table());
+        sizes.put("table", jdbcTemplate.queryForObject("SELECT pg_table_size(CAST(? AS regclass))", Long.class, table()));
+        return sizes;
+    }
+
+    private String table() {
+        return vectorSchema + "." + vectorTable;
+    }
+
+    private String indexName(Mode indexMode) {
+        return vectorTable + "_" + indexMode.name().toLowerCase(Locale.ROOT) + "_idx";
+    }
+
+    private String indexedExpression(Mode indexMode) {
+        return switch (indexMode) {
+            case HALFVEC -> "embedding::halfvec(" + dimensions + ")";
+            case BINARY -> "binary_quantize(embedding)::bit(" + dimensions + ")";
+            case NONE -> "embedding";
+        };
+    }
+
+    private static String operatorClass(Mode indexMode) {
+        return switch (indexMode) {
+            case HALFVEC -> "halfvec_cosine_ops";
+            case BINARY -> "bit_hamming_ops";
+            case NONE -> "vector_cosine_ops";
+        };
+    }
+
+    private String coarseDistance(Mode searchMode) {
+        return switch (searchMode) {
+            case HALFVEC -> "<=> CAST(? AS halfvec(" + dimensions + "))";
+            case BINARY -> "<~> binary_quantize(CAST(? AS vector))";
+            case NONE -> "<=> CAST(? AS vector)";
+        };
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable vector store metadata: " + json, e);
+        }
+    }
+}
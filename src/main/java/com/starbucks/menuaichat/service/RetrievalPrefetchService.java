@@ -0,0 +1,224 @@
+package com.starbucks.menuaichat.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Speculatively runs retrieval for a message while the user is still typing it. Prefetch
+ * requests are debounced per session; the resulting menu context is held briefly and handed
+ * to the chat turn if the submitted message means the same thing. Texts that only differ in
+ * case, spacing or trailing punctuation match outright. Anything else is compared by
+ * embedding, never by characters: "high caffeine" and "low caffeine" are one edit apart.
+ */
+@Service
+public class RetrievalPrefetchService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RetrievalPrefetchService.class);
+    
+    @Autowired
+    private MenuService menuService;
+    
+    @Autowired
+    private SpringAiVectorService springAiVectorService;
+    
+    @Autowired
+    private LlmConcurrencyLimiter llmConcurrencyLimiter;
+    
+    @Value("${starbucks.prefetch.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${starbucks.prefetch.debounce:300ms}")
+    private Duration debounce;
+    
+    @Value("${starbucks.prefetch.ttl:30s}")
+    private Duration ttl;
+    
+    @Value("${starbucks.prefetch.max-join-wait:2s}")
+    private Duration maxJoinWait;
+    
+    @Value("${starbucks.prefetch.min-similarity:0.97}")
+    private double minSimilarity;
+    
+    @Value("${starbucks.prefetch.min-length:8}")
+    private int minLength;
+    
+    @Value("${starbucks.prefetch.max-sessions:10000}")
+    private int maxSessions;
+    
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "retrieval-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final Map<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+    
+    /**
+     * Schedules retrieval for {@code partialMessage} after the debounce delay, replacing any
+     * prefetch for the session that has not started yet.
+     */
+    public void prefetch(String sessionId, String partialMessage) {
+        if (!enabled || sessionId == null || partialMessage == null) {
+            return;
+        }
+        String normalized = normalize(partialMessage);
+        if (normalized.length() < minLength) {
+            return;
+        }
+        
+        Prefetch existing = prefetches.get(sessionId);
+        if (existing != null && existing.normalizedText().equals(normalized) && !existing.isExpired(ttl)) {
+            return;
+        }
+        if (existing == null && prefetches.size() >= maxSessions) {
+            logger.debug("Prefetch cache full, skipping session: {}", sessionId);
+            return;
+        }
+        
+        CompletableFuture<float[]> embedding = new CompletableFuture<>();
+        CompletableFuture<String> context = new CompletableFuture<>();
+        ScheduledFuture<?> pending = executor.schedule(() -> compute(sessionId, partialMessage, embedding, context),
+            debounce.toMillis(), TimeUnit.MILLISECONDS);
+        Prefetch replaced = prefetches.put(sessionId, new Prefetch(normalized,
+            menuService.needsNutritionSearch(partialMessage), embedding, context, pending, System.nanoTime()));
+        if (replaced != null) {
+            replaced.pending().cancel(false);
+        }
+    }
+    
+    private void compute(String sessionId, String message, CompletableFuture<float[]> embedding,
+                         CompletableFuture<String> context) {
+        // Speculative work must never take embedding capacity from real requests
+        if (llmConcurrencyLimiter.getEmbeddingBulkhead().getWaiting() > 0) {
+            embedding.cancel(false);
+            context.cancel(false);
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            // Published before retrieval so a submitted message can be compared without waiting for it
+            float[] vector = springAiVectorService.embed(message);
+            embedding.complete(vector);
+            context.complete(menuService.buildMenuContext(message, vector));
+            logger.debug("Prefetched menu context for session {} in {} ms",
+                sessionId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            logger.debug("Prefetch failed for session {}: {}", sessionId, e.getMessage());
+            embedding.completeExceptionally(e);
+            context.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Looks up the prefetched menu context for the submitted message. The entry is consumed
+     * either way. For the same text the turn waits briefly for a prefetch that is still
+     * running, since it started earlier. For different text the submitted message is embedded
+     * first (retrieval needs that anyway) and compared with the prefetched embedding only if
+     * that is already available; a prefetch that has not even embedded yet is behind the turn
+     * and is dropped without waiting. On a miss the fresh embedding is returned so retrieval
+     * does not embed the message a second time.
+     */
+    public Lookup takeContext(String sessionId, String message) {
+        Prefetch prefetch = prefetches.remove(sessionId);
+        if (prefetch == null) {
+            return Lookup.MISS;
+        }
+        boolean sameText = prefetch.normalizedText().equals(normalize(message));
+        // The nutrition search is decided on the text, so a different decision means different retrieval
+        if (prefetch.isExpired(ttl)
+                || (!sameText && prefetch.nutritional() != menuService.needsNutritionSearch(message))) {
+            prefetch.pending().cancel(false);
+            return Lookup.MISS;
+        }
+        
+        if (sameText) {
+            String context = join(sessionId, prefetch);
+            return context != null ? new Lookup(context, prefetch.embedding().getNow(null)) : Lookup.MISS;
+        }
+        
+        float[] embedding = springAiVectorService.embed(message);
+        float[] prefetchedEmbedding = prefetch.embedding().isDone() && !prefetch.embedding().isCompletedExceptionally()
+            ? prefetch.embedding().getNow(null) : null;
+        if (prefetchedEmbedding == null) {
+            logger.debug("Prefetch for session {} not embedded yet, retrieving directly", sessionId);
+            prefetch.pending().cancel(false);
+            return new Lookup(null, embedding);
+        }
+        double similarity = SpringAiVectorService.cosine(prefetchedEmbedding, embedding);
+        if (similarity < minSimilarity) {
+            logger.debug("Prefetch for session {} did not match (cosine {})", sessionId, similarity);
+            return new Lookup(null, embedding);
+        }
+        logger.debug("Prefetch for session {} matched by embedding (cosine {})", sessionId, similarity);
+        return new Lookup(join(sessionId, prefetch), embedding);
+    }
+    
+    private String join(String sessionId, Prefetch prefetch) {
+        try {
+            return prefetch.context().get(maxJoinWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            logger.debug("Prefetch for session {} not usable: {}", sessionId, e.toString());
+        }
+        prefetch.pending().cancel(false);
+        return null;
+    }
+    
+    @Scheduled(fixedDelayString = "${starbucks.prefetch.ttl:30s}")
+    public void evictExpired() {
+        prefetches.entrySet().removeIf(entry -> {
+            if (entry.getValue().isExpired(ttl)) {
+                entry.getValue().pending().cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ").replaceAll("[\\p{Punct}\\s]+$", "");
+    }
+    
+    /**
+     * Result of {@link #takeContext}: the reusable menu context, if any, and the submitted
+     * message's embedding when one was computed.
+     */
+    public record Lookup(String context, float[] queryEmbedding) {
+        static final Lookup MISS = new Lookup(null, null);
+        
+        public boolean hit() {
+            return context != null;
+        }
+    }
+    
+    private record Prefetch(String normalizedText, boolean nutritional, CompletableFuture<float[]> embedding,
+                            CompletableFuture<String> context, ScheduledFuture<?> pending, long createdNanos) {
+        boolean isExpired(Duration ttl) {
+            return System.nanoTime() - createdNanos > ttl.toNanos();
+        }
+    }
+}
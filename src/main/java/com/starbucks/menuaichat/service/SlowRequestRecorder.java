@@ -0,0 +1,119 @@
+package com.starbucks.menuaichat.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the full stage breakdown of the slowest N chat turns over a sliding window. The
+ * window is split into time buckets, each holding its own top N; a turn faster than
+ * everything already in a full bucket is rejected after a single volatile read.
+ */
+@Service
+public class SlowRequestRecorder {
+    
+    @Value("${starbucks.diagnostics.slow-requests.size:20}")
+    private int size;
+    
+    @Value("${starbucks.diagnostics.slow-requests.window:15m}")
+    private Duration window;
+    
+    @Value("${starbucks.diagnostics.slow-requests.buckets:15}")
+    private int bucketCount;
+    
+    private long bucketMillis;
+    private Bucket[] buckets;
+    
+    @PostConstruct
+    void init() {
+        bucketCount = Math.max(1, bucketCount);
+        bucketMillis = Math.max(1, window.toMillis() / bucketCount);
+        buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+    
+    public void record(ChatTrace trace, String outcome) {
+        long totalNanos = trace.getTotalNanos();
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % bucketCount)];
+        if (bucket.epoch == epoch && totalNanos <= bucket.admissionThreshold) {
+            return;
+        }
+        
+        synchronized (bucket) {
+            if (bucket.epoch != epoch) {
+                // Publish the epoch last: a lock-free reader that sees it must also see the reset threshold
+                bucket.admissionThreshold = -1;
+                bucket.slowest.clear();
+                bucket.epoch = epoch;
+            }
+            if (bucket.slowest.size() >= size) {
+                if (totalNanos <= bucket.slowest.peek().totalNanos()) {
+                    return;
+                }
+                bucket.slowest.poll();
+            }
+            bucket.slowest.add(SlowRequest.from(trace, outcome));
+            if (bucket.slowest.size() >= size) {
+                bucket.admissionThreshold = bucket.slowest.peek().totalNanos();
+            }
+        }
+    }
+    
+    /**
+     * Slowest turns in the current window, slowest first.
+     */
+    public List<SlowRequest> getSlowest() {
+        long currentEpoch = System.currentTimeMillis() / bucketMillis;
+        List<SlowRequest> all = new ArrayList<>();
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                if (currentEpoch - bucket.epoch < bucketCount) {
+                    all.addAll(bucket.slowest);
+                }
+            }
+        }
+        all.sort(Comparator.comparingLong(SlowRequest::totalNanos).reversed());
+        return all.size() > size ? List.copyOf(all.subList(0, size)) : all;
+    }
+    
+    public Duration getWindow() {
+        return window;
+    }
+    
+    private static final class Bucket {
+        private volatile long epoch = Long.MIN_VALUE;
+        private volatile long admissionThreshold = -1;
+        private final PriorityQueue<SlowRequest> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(SlowRequest::totalNanos));
+    }
+    
+    public record SlowRequest(String sessionId, String startedAt, String outcome, long totalNanos,
+                              double totalMs, List<Map<String, Object>> stages) {
+        
+        static SlowRequest from(ChatTrace trace, String outcome) {
+            List<Map<String, Object>> stages = new ArrayList<>();
+            for (ChatTrace.StageSample sample : trace.getSamples()) {
+                Map<String, Object> stage = new LinkedHashMap<>();
+                stage.put("stage", sample.stage());
+                stage.put("ms", sample.nanos() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+                stage.put("inputSize", sample.inputSize());
+                stage.put("outputSize", sample.outputSize());
+                stages.add(stage);
+            }
+            return new SlowRequest(trace.getSessionId(), trace.getStartedAt().toString(), outcome,
+                trace.getTotalNanos(), trace.getTotalNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1), stages);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.starbucks.menuaichat.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.starbucks.menuaichat.model.DrinkItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,8 +11,12 @@ import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +31,24 @@ public class SpringAiVectorService {
     @Autowired
     private EmbeddingModel embeddingModel;
     
+    @Autowired
+    private LlmConcurrencyLimiter llmConcurrencyLimiter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private QuantizedVectorIndex quantizedVectorIndex;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${spring.ai.vectorstore.pgvector.schema-name:public}")
+    private String vectorSchema;
+    
+    @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}")
+    private String vectorTable;
+    
     public void addDrinkToVectorStore(DrinkItem drink) {
         logger.debug("🔢 Adding drink to vector store: {}", drink.getBeverage());
         
@@ -51,26 +76,28 @@ public class SpringAiVectorService {
             "drink_id", drink.getId().toString(),
             "type", "nutritional",
             "beverage", drink.getBeverage(),
+            "category", drink.getBeverageCategory(),
             "calories", drink.getCalories() != null ? drink.getCalories().toString() : "0",
             "caffeine", drink.getCaffeine() != null ? drink.getCaffeine().toString() : "0"
         ));
         
         // Add both documents to vector store
-        vectorStore.add(List.of(descDoc, nutDoc));
+        llmConcurrencyLimiter.runEmbedding(() -> vectorStore.add(List.of(descDoc, nutDoc)));
         logger.debug("✅ Added drink documents to vector store");
     }
     
     public List<Document> searchSimilarDrinks(String query, String type, int limit) {
-        logger.debug("🔍 Spring AI vector search: '{}' (type: {})", query, type);
-        
-        // Use the simple similaritySearch method with query string
-        List<Document> allResults = vectorStore.similaritySearch(query);
+        if (quantizedVectorIndex.isActive()) {
+            return searchSimilarDrinks(embed(query), type, limit);
+        }
+        logger.debug("🔍 Spring AI vector search: '{}' (type: {}, topK: {})", query, type, limit);
         
-        // Filter by type and limit results
-        List<Document> results = allResults.stream()
-            .filter(doc -> type.equals(doc.getMetadata().get("type")))
-            .limit(limit)
-            .toList();
+        SearchRequest request = SearchRequest.builder()
+            .query(query)
+            .topK(limit)
+            .filterExpression("type == '" + type + "'")
+            .build();
+        List<Document> results = llmConcurrencyLimiter.callEmbedding(() -> vectorStore.similaritySearch(request));
         
         logger.info("📊 Spring AI found {} similar documents", results.size());
         
@@ -84,4 +111,109 @@ public class SpringAiVectorService {
     public List<Document> searchSimilarDrinksByNutrition(String query, int limit) {
         return searchSimilarDrinks(query, "nutritional", limit);
     }
-}
\ No newline at end of file
+    
+    public float[] embed(String text) {
+        return llmConcurrencyLimiter.callEmbedding(() -> embeddingModel.embed(text));
+    }
+    
+    /**
+     * Embeds several texts in one model request.
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        return llmConcurrencyLimiter.callEmbedding(() -> embeddingModel.embed(texts));
+    }
+    
+    /**
+     * Similarity search with an already computed query embedding, so callers that embed
+     * queries in bulk or ahead of time do not pay for a second embedding call.
+     */
+    public List<Document> searchSimilarDrinks(float[] queryEmbedding, String type, int limit) {
+        logger.debug("🔍 Vector search by embedding (type: {}, topK: {})", type, limit);
+        if (quantizedVectorIndex.isActive()) {
+            List<Document> results = quantizedVectorIndex.search(queryEmbedding, type, limit);
+            logger.info("📊 Quantized vector search found {} similar documents", results.size());
+            return results;
+        }
+        
+        String sql = "SELECT id, content, metadata, embedding <=> ?::vector AS distance FROM "
+            + vectorSchema + "." + vectorTable
+            + " WHERE metadata->>'type' = ? ORDER BY distance LIMIT ?";
+        List<Document> results = jdbcTemplate.query(sql, (rs, rowNum) -> Document.builder()
+                .id(rs.getString("id"))
+                .text(rs.getString("content"))
+                .metadata(parseMetadata(rs.getString("metadata")))
+                .score(1.0 - rs.getDouble("distance"))
+                .build(),
+            toVectorLiteral(queryEmbedding), type, limit);
+        
+        logger.info("📊 Vector search by embedding found {} similar documents", results.size());
+        return results;
+    }
+    
+    public List<Document> searchSimilarDrinksByDescription(float[] queryEmbedding, int limit) {
+        return searchSimilarDrinks(queryEmbedding, "description", limit);
+    }
+    
+    public List<Document> searchSimilarDrinksByNutrition(float[] queryEmbedding, int limit) {
+        return searchSimilarDrinks(queryEmbedding, "nutritional", limit);
+    }
+    
+    /**
+     * Stored embeddings of the given vector store documents, keyed by document id.
+     */
+    public Map<String, float[]> getEmbeddings(List<String> documentIds) {
+        if (documentIds.isEmpty()) {
+            return Map.of();
+        }
+        String sql = "SELECT id, embedding::text AS embedding FROM " + vectorSchema + "." + vectorTable
+            + " WHERE id = ANY(?::uuid[])";
+        Map<String, float[]> embeddings = new HashMap<>();
+        RowCallbackHandler collect = rs -> embeddings.put(rs.getString("id"), parseVectorLiteral(rs.getString("embedding")));
+        jdbcTemplate.query(sql, collect, "{" + String.join(",", documentIds) + "}");
+        return embeddings;
+    }
+    
+    private Map<String, Object> parseMetadata(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable vector store metadata: " + json, e);
+        }
+    }
+    
+    static String toVectorLiteral(float[] vector) {
+        StringBuilder sb = new StringBuilder(vector.length * 10);
+        sb.append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+    
+    static double cosine(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+    
+    static float[] parseVectorLiteral(String text) {
+        String[] parts = text.substring(1, text.length() - 1).split(",");
+        float[] vector = new float[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Float.parseFloat(parts[i]);
+        }
+        return vector;
+    }
+}
@@ -2,7 +2,6 @@ package com.starbucks.menuaichat.service;
 
 import com.starbucks.menuaichat.model.ChatMessage;
 import com.starbucks.menuaichat.model.ChatSession;
-import com.starbucks.menuaichat.model.DrinkItem;
 import com.starbucks.menuaichat.repository.ChatMessageRepository;
 import com.starbucks.menuaichat.repository.ChatSessionRepository;
 
@@ -34,6 +33,15 @@ public class StarbucksAiChatService {
     @Autowired
     private ChatMessageRepository chatMessageRepository;
     
+    @Autowired
+    private LlmConcurrencyLimiter llmConcurrencyLimiter;
+    
+    @Autowired
+    private RetrievalPrefetchService retrievalPrefetchService;
+    
+    @Autowired
+    private SlowRequestRecorder slowRequestRecorder;
+    
     private static final String SYSTEM_PROMPT = """
         You are a helpful Starbucks menu assistant. You help customers find drinks based on their preferences, 
         dietary requirements, and nutritional needs. You have access to the complete Starbucks menu with detailed 
@@ -56,14 +64,24 @@ public class StarbucksAiChatService {
     
     public String chat(String sessionId, String userMessage) {
         logger.info("Starting chat for session: {} with message: {}", sessionId, userMessage);
+        ChatTrace trace = ChatTrace.start(sessionId);
+        String outcome = "error";
+        long promptSize = -1;
+        long responseSize = -1;
+        ChatMessage userRow = null;
         
         try {
             // Get or create chat session
             ChatSession session = getOrCreateSession(sessionId);
+            // Mark the session active before adding rows, so the idle purge keeps it for this turn
+            if (chatSessionRepository.touch(session.getId(), LocalDateTime.now()) == 0) {
+                logger.info("Session {} was purged as idle, starting it again", sessionId);
+                session = getOrCreateSession(sessionId);
+            }
             logger.debug("Using chat session with ID: {}", session.getId());
             
             // Save user message
-            saveMessage(session.getId(), ChatMessage.MessageType.USER, userMessage);
+            userRow = saveMessage(session.getId(), ChatMessage.MessageType.USER, userMessage);
             logger.debug("Saved user message to database");
             
             // Get conversation history
@@ -71,26 +89,67 @@ public class StarbucksAiChatService {
             logger.debug("Retrieved {} messages from conversation history", history.size());
             
             // Analyze user message for menu queries
-            String menuContext = analyzeAndGetMenuContext(userMessage);
+            String menuContext = analyzeAndGetMenuContext(sessionId, userMessage, null);
             logger.debug("Generated menu context with {} characters", menuContext.length());
             
             // Build conversation prompt
-            String conversationPrompt = buildConversationPrompt(history, menuContext, userMessage);
+            String conversationPrompt = trace.stage(ChatTrace.PROMPT, menuContext.length(),
+                () -> buildConversationPrompt(history, menuContext, userMessage), String::length);
+            promptSize = conversationPrompt.length();
             logger.debug("Built conversation prompt with {} characters", conversationPrompt.length());
             
             // Get AI response using Spring AI
             logger.info("Sending request to Spring AI ChatModel for session: {}", sessionId);
-            String aiResponse = chatModel.call(conversationPrompt);
+            // Time spent queued behind other turns is its own stage, so llm is the model alone
+            String aiResponse;
+            try (LlmBulkhead.Permit permit = trace.stage(ChatTrace.QUEUE, llmConcurrencyLimiter::acquireChat)) {
+                aiResponse = trace.stage(ChatTrace.LLM, conversationPrompt.length(),
+                    () -> chatModel.call(conversationPrompt), String::length);
+            }
+            responseSize = aiResponse.length();
             logger.info("Received AI response with {} characters for session: {}", aiResponse.length(), sessionId);
             
             // Save AI response
             saveMessage(session.getId(), ChatMessage.MessageType.ASSISTANT, aiResponse);
             logger.debug("Saved AI response to database");
+            logger.debug("Stage timings for session {}: {}", sessionId, trace.getStageMillis());
             
+            outcome = "ok";
             return aiResponse;
+        } catch (LlmCapacityExceededException e) {
+            outcome = "shed";
+            logger.warn("Shedding chat for session: {} - {}", sessionId, e.getMessage());
+            // The client retries after Retry-After; keep the turn out of history until it is served
+            if (userRow != null) {
+                chatMessageRepository.delete(userRow);
+            }
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing chat for session: {} - {}", sessionId, e.getMessage(), e);
             throw e;
+        } finally {
+            trace.finish(outcome, promptSize, responseSize);
+            slowRequestRecorder.record(trace, outcome);
+        }
+    }
+    
+    /**
+     * Runs one question through retrieval, prompt building and the model without touching
+     * any session state, for offline evaluation. {@code queryEmbedding} may be precomputed
+     * (e.g. embedded in a batch) or null to embed the question during retrieval. Generation
+     * goes through the evaluation bulkhead, not the live chat one.
+     */
+    public String evaluate(String question, float[] queryEmbedding, ChatTrace trace) {
+        trace.attach();
+        try {
+            String menuContext = analyzeAndGetMenuContext(null, question, queryEmbedding);
+            String prompt = trace.stage(ChatTrace.PROMPT, menuContext.length(),
+                () -> buildConversationPrompt(List.of(), menuContext, question), String::length);
+            try (LlmBulkhead.Permit permit = trace.stage(ChatTrace.QUEUE, llmConcurrencyLimiter::acquireEvaluation)) {
+                return trace.stage(ChatTrace.LLM, prompt.length(), () -> chatModel.call(prompt), String::length);
+            }
+        } finally {
+            trace.detach();
         }
     }
     
@@ -108,51 +167,26 @@ public class StarbucksAiChatService {
         return savedSession;
     }
     
-    private void saveMessage(Long sessionId, ChatMessage.MessageType type, String content) {
+    private ChatMessage saveMessage(Long sessionId, ChatMessage.MessageType type, String content) {
         ChatMessage message = new ChatMessage(type, content);
         message.setSessionId(sessionId);
-        chatMessageRepository.save(message);
+        return chatMessageRepository.save(message);
     }
     
-    private String analyzeAndGetMenuContext(String userMessage) {
-        logger.debug("Analyzing user message for menu context using vector search: {}", userMessage);
-        StringBuilder context = new StringBuilder();
-        
-        // Use vector search to find semantically similar drinks by description
-        List<DrinkItem> similarDrinks = menuService.findSimilarDrinksByDescription(userMessage, 8);
-        if (!similarDrinks.isEmpty()) {
-            context.append("Relevant Drinks Based on Your Request:\n")
-                   .append(menuService.formatDrinksForAI(similarDrinks))
-                   .append("\n");
-        }
-        
-        // If the message seems nutrition-focused, also search by nutritional similarity
-        String lowerMessage = userMessage.toLowerCase();
-        if (containsNutritionalKeywords(lowerMessage)) {
-            List<DrinkItem> nutritionalMatches = menuService.findSimilarDrinksByNutrition(userMessage, 5);
-            if (!nutritionalMatches.isEmpty()) {
-                context.append("Nutritionally Similar Options:\n")
-                       .append(menuService.formatDrinksForAI(nutritionalMatches))
-                       .append("\n");
+    private String analyzeAndGetMenuContext(String sessionId, String userMessage, float[] queryEmbedding) {
+        if (sessionId != null) {
+            RetrievalPrefetchService.Lookup prefetched = ChatTrace.traceCurrent(ChatTrace.PREFETCH, userMessage.length(),
+                () -> retrievalPrefetchService.takeContext(sessionId, userMessage),
+                lookup -> lookup.hit() ? lookup.context().length() : -1);
+            if (prefetched.hit()) {
+                logger.debug("Using prefetched menu context for session: {}", sessionId);
+                return prefetched.context();
             }
-        }
-        
-        logger.debug("Generated context with {} characters using vector search", context.length());
-        return context.toString();
-    }
-    
-    private boolean containsNutritionalKeywords(String message) {
-        String[] nutritionalKeywords = {
-            "calorie", "calories", "fat", "protein", "caffeine", "sugar", "carb", "carbohydrate",
-            "diet", "healthy", "low", "high", "nutrition", "nutritional", "energy", "vitamin"
-        };
-        
-        for (String keyword : nutritionalKeywords) {
-            if (message.contains(keyword)) {
-                return true;
+            if (prefetched.queryEmbedding() != null) {
+                queryEmbedding = prefetched.queryEmbedding();
             }
         }
-        return false;
+        return menuService.buildMenuContext(userMessage, queryEmbedding);
     }
     
     private String buildConversationPrompt(List<ChatMessage> history, String menuContext, String userMessage) {
@@ -41,14 +41,19 @@ CREATE TABLE chat_sessions (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Create chat_messages table
+-- Create chat_messages table, range-partitioned by day on timestamp.
+-- Daily partitions are created ahead of time and dropped past retention by
+-- ChatMessagePartitionManager; the default partition only catches stragglers.
 CREATE TABLE chat_messages (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     session_id BIGINT REFERENCES chat_sessions(id) ON DELETE CASCADE,
     message_type VARCHAR(20) NOT NULL,
     content TEXT NOT NULL,
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE chat_messages_default PARTITION OF chat_messages DEFAULT;
 
 -- Create indexes for better performance
 CREATE INDEX idx_drink_items_category ON drink_items(beverage_category);
@@ -56,7 +61,8 @@ CREATE INDEX idx_drink_items_beverage ON drink_items(beverage);
 CREATE INDEX idx_drink_items_calories ON drink_items(calories);
 CREATE INDEX idx_drink_items_caffeine ON drink_items(caffeine);
 CREATE INDEX idx_chat_sessions_session_id ON chat_sessions(session_id);
-CREATE INDEX idx_chat_messages_session_id ON chat_messages(session_id);
+CREATE INDEX idx_chat_sessions_updated_at ON chat_sessions(updated_at);
+CREATE INDEX idx_chat_messages_session_id ON chat_messages(session_id, timestamp);
 CREATE INDEX idx_chat_messages_timestamp ON chat_messages(timestamp);
 
 -- Spring AI will create its own vector indexes automatically
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.starbucks.menuaichat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises {@link LlmBulkhead} with real threads: shedding on a full queue and on a
+ * deadline, FIFO hand-off of permits, and the adaptive limit.
+ */
+class LlmBulkheadTest {
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void stopCallers() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void callIsShedImmediatelyWhenQueueIsFull() throws Exception {
+        LlmBulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(10));
+        Future<?> running = hold(bulkhead);
+        awaitCondition(() -> bulkhead.getInFlight() == 1);
+        Future<?> queued = hold(bulkhead);
+        awaitCondition(() -> bulkhead.getWaiting() == 1);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call(() -> "third"))
+            .isInstanceOf(LlmCapacityExceededException.class)
+            .hasMessageContaining("wait queue is full");
+        assertThat(elapsedMillis(start)).isLessThan(1000L);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1L);
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(bulkhead.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    void callIsShedUpFrontWhenExpectedWaitExceedsDeadline() throws Exception {
+        LlmBulkhead bulkhead = bulkhead(1, 4, Duration.ofMillis(100));
+        bulkhead.call(() -> sleep(300));
+        hold(bulkhead);
+        awaitCondition(() -> bulkhead.getInFlight() == 1);
+
+        // One call ahead at ~300 ms cannot finish inside a 100 ms deadline, so there is no point queueing
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call(() -> "late"))
+            .isInstanceOf(LlmCapacityExceededException.class)
+            .hasMessageContaining("expected wait exceeds deadline");
+        assertThat(elapsedMillis(start)).isLessThan(100L);
+        assertThat(bulkhead.getWaiting()).isEqualTo(0);
+    }
+
+    @Test
+    void queuedCallIsShedWhenDeadlinePasses() throws Exception {
+        LlmBulkhead bulkhead = bulkhead(1, 4, Duration.ofMillis(200));
+        hold(bulkhead);
+        awaitCondition(() -> bulkhead.getInFlight() == 1);
+
+        // No latency observed yet, so the call is queued and only shed once its deadline passes
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call(() -> "late"))
+            .isInstanceOf(LlmCapacityExceededException.class)
+            .hasMessageContaining("deadline exceeded while queued");
+        assertThat(elapsedMillis(start)).isGreaterThanOrEqualTo(200L);
+        assertThat(bulkhead.getWaiting()).isEqualTo(0);
+    }
+
+    @Test
+    void queuedCallsAreServedInArrivalOrder() throws Exception {
+        LlmBulkhead bulkhead = bulkhead(1, 8, Duration.ofSeconds(10));
+        Future<?> running = hold(bulkhead);
+        awaitCondition(() -> bulkhead.getInFlight() == 1);
+
+        List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> queued = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            int caller = i;
+            queued.add(callers.submit(() -> bulkhead.call(() -> served.add(caller))));
+            awaitCondition(() -> bulkhead.getWaiting() == caller);
+        }
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        for (Future<?> call : queued) {
+            call.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(served).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void adaptiveLimitIgnoresOneSlowCallButShrinksOnSustainedLatency() {
+        LlmBulkhead bulkhead = new LlmBulkhead("test", 4, 0, Duration.ofSeconds(10),
+            true, 1, Duration.ofMillis(50));
+        for (int i = 0; i < 8; i++) {
+            bulkhead.call(() -> "fast");
+        }
+
+        // A single long generation moves the smoothed latency, not past the target
+        bulkhead.call(() -> sleep(150));
+        assertThat(bulkhead.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 6; i++) {
+            bulkhead.call(() -> sleep(100));
+        }
+        assertThat(bulkhead.getLimit()).isLessThan(4);
+    }
+
+    private static LlmBulkhead bulkhead(int maxConcurrent, int maxQueue, Duration maxWait) {
+        return new LlmBulkhead("test", maxConcurrent, maxQueue, maxWait, false, maxConcurrent, Duration.ofSeconds(1));
+    }
+
+    private Future<?> hold(LlmBulkhead bulkhead) {
+        return callers.submit(() -> bulkhead.call(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+    }
+
+    private static String sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slow";
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.starbucks.menuaichat.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drives {@link OllamaEndpointPool} through {@link PooledOllamaChatModel} against stub
+ * Ollama servers, so routing, ejection, failover and re-admission go over real HTTP.
+ */
+class OllamaEndpointPoolTest {
+
+    private static final int EJECT_AFTER_FAILURES = 2;
+    private static final int READMIT_AFTER_SUCCESSES = 2;
+
+    private final List<StubOllama> stubs = new ArrayList<>();
+
+    @AfterEach
+    void stopStubs() {
+        stubs.forEach(StubOllama::close);
+    }
+
+    @Test
+    void concurrentRequestsGoToEndpointsWithFewestOutstanding() throws Exception {
+        StubOllama a = stub("a", 0);
+        StubOllama b = stub("b", 0);
+        StubOllama c = stub("c", 0);
+        PooledOllamaChatModel chatModel = chatModel(pool(a, b, c));
+
+        CountDownLatch release = new CountDownLatch(1);
+        stubs.forEach(stub -> stub.holdUntil(release));
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> chatModel.call("hi")));
+            int expected = i;
+            awaitCondition(() -> a.held() + b.held() + c.held() == expected);
+        }
+
+        // Each held request keeps its endpoint busy, so the next one must go elsewhere
+        assertThat(List.of(a.held(), b.held(), c.held())).containsExactly(1, 1, 1);
+        release.countDown();
+        assertThat(calls.stream().map(CompletableFuture::join)).containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test
+    void failingEndpointIsEjectedAndReadmittedAfterHealthChecks() {
+        StubOllama a = stub("a", 20);
+        StubOllama b = stub("b", 0);
+        StubOllama c = stub("c", 20);
+        OllamaEndpointPool<OllamaChatModel> pool = pool(a, b, c);
+        PooledOllamaChatModel chatModel = chatModel(pool);
+
+        // b fails fast, so latency tie-breaking keeps sending it traffic until it is ejected
+        b.status = 500;
+        int failures = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                assertThat(chatModel.call("hi")).isIn("a", "c");
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+        assertThat(failures).isEqualTo(EJECT_AFTER_FAILURES);
+        assertThat(b.chatRequests.get()).isEqualTo(EJECT_AFTER_FAILURES);
+        assertThat(isHealthy(pool, b)).isFalse();
+
+        // Recovered, but not yet re-admitted until enough health checks pass in a row
+        b.status = 200;
+        pool.checkHealth();
+        assertThat(isHealthy(pool, b)).isFalse();
+        assertThat(chatModel.call("hi")).isIn("a", "c");
+
+        pool.checkHealth();
+        assertThat(isHealthy(pool, b)).isTrue();
+        assertThat(b.tagRequests.get()).isEqualTo(READMIT_AFTER_SUCCESSES);
+        assertThat(chatModel.call("hi")).isEqualTo("b");
+    }
+
+    @Test
+    void unreachableEndpointFailsOverWithoutSurfacingErrors() {
+        StubOllama a = stub("a", 20);
+        StubOllama dead = stub("dead", 0);
+        OllamaEndpointPool<OllamaChatModel> pool = pool(a, dead);
+        PooledOllamaChatModel chatModel = chatModel(pool);
+        dead.close();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(chatModel.call("hi")).isEqualTo("a");
+        }
+        assertThat(isHealthy(pool, dead)).isFalse();
+    }
+
+    @Test
+    void serverErrorsSurfaceWhenEveryEndpointIsFailing() {
+        StubOllama a = stub("a", 0);
+        a.status = 500;
+        PooledOllamaChatModel chatModel = chatModel(pool(a));
+
+        // An HTTP 5xx may have been processed, so it is not retried on another endpoint
+        assertThatThrownBy(() -> chatModel.call("hi")).isInstanceOf(RuntimeException.class);
+        assertThat(a.chatRequests.get()).isEqualTo(1);
+    }
+
+    private StubOllama stub(String name, long delayMillis) {
+        StubOllama stub = new StubOllama(name, delayMillis);
+        stubs.add(stub);
+        return stub;
+    }
+
+    private OllamaEndpointPool<OllamaChatModel> pool(StubOllama... servers) {
+        List<OllamaEndpoint<OllamaChatModel>> endpoints = new ArrayList<>();
+        for (StubOllama server : servers) {
+            OllamaApi api = OllamaApi.builder().baseUrl(server.baseUrl).build();
+            endpoints.add(new OllamaEndpoint<>(server.baseUrl, OllamaChatModel.builder().ollamaApi(api).build(), api));
+        }
+        return new OllamaEndpointPool<>("chat", endpoints, EJECT_AFTER_FAILURES, READMIT_AFTER_SUCCESSES);
+    }
+
+    private PooledOllamaChatModel chatModel(OllamaEndpointPool<OllamaChatModel> pool) {
+        return new PooledOllamaChatModel(pool, OllamaOptions.builder().model("stub").build());
+    }
+
+    private boolean isHealthy(OllamaEndpointPool<?> pool, StubOllama stub) {
+        return pool.getEndpointStats().stream()
+            .filter(stats -> stub.baseUrl.equals(stats.get("baseUrl")))
+            .map(stats -> (Boolean) stats.get("healthy"))
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Minimal Ollama server: {@code /api/chat} answers with its own name and
+     * {@code /api/tags} serves the health check, both with a configurable status.
+     */
+    private static final class StubOllama implements AutoCloseable {
+
+        final String name;
+        final String baseUrl;
+        final AtomicInteger chatRequests = new AtomicInteger();
+        final AtomicInteger tagRequests = new AtomicInteger();
+        private final AtomicInteger held = new AtomicInteger();
+        private final HttpServer server;
+        private final long delayMillis;
+        volatile int status = 200;
+        private volatile CountDownLatch release;
+
+        StubOllama(String name, long delayMillis) {
+            this.name = name;
+            this.delayMillis = delayMillis;
+            try {
+                server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            server.createContext("/api/chat", this::handleChat);
+            server.createContext("/api/tags", this::handleTags);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        void holdUntil(CountDownLatch latch) {
+            release = latch;
+        }
+
+        int held() {
+            return held.get();
+        }
+
+        private void handleChat(HttpExchange exchange) throws IOException {
+            chatRequests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            CountDownLatch latch = release;
+            if (latch != null) {
+                held.incrementAndGet();
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sleep();
+            respond(exchange, """
+                {"model":"stub","created_at":"2024-01-01T00:00:00Z",\
+                "message":{"role":"assistant","content":"%s"},"done":true}""".formatted(name));
+        }
+
+        private void handleTags(HttpExchange exchange) throws IOException {
+            tagRequests.incrementAndGet();
+            respond(exchange, "{\"models\":[]}");
+        }
+
+        private void sleep() {
+            if (delayMillis > 0 && status == 200) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void respond(HttpExchange exchange, String body) throws IOException {
+            byte[] bytes = (status == 200 ? body : "{\"error\":\"stub failure\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+}